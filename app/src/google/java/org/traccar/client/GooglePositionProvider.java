@@ -35,16 +35,48 @@ public class GooglePositionProvider extends PositionProvider {
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
     }
 
-    @SuppressLint("MissingPermission")
     public void startUpdates() {
-        LocationRequest locationRequest = new LocationRequest();
-        locationRequest.setPriority(getPriority(preferences.getString(MainFragment.KEY_ACCURACY, "medium")));
-        locationRequest.setInterval(distance > 0 || angle > 0 ? MINIMUM_INTERVAL : interval);
+        setupChargingVariables(deviceStateMonitor.getState().isCharging());
+        startMonitoring();
+        requestLocationUpdates();
+    }
+
+    @SuppressLint("MissingPermission")
+    private void requestLocationUpdates() {
+        LocationRequest locationRequest = createRequest(getRequestInterval());
+        locationRequest.setSmallestDisplacement(getRequestDistance());
+        if (batched) {
+            // fixes are collected by the platform and delivered together, saving wakeups
+            locationRequest.setMaxWaitTime(getBatchWait(getRequestInterval()));
+        }
         fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, null);
+        if (getRequestDistance() > 0) {
+            // a second request on the same callback would replace the first one
+            fusedLocationClient.requestLocationUpdates(createRequest(interval), intervalCallback, null);
+        }
     }
 
     public void stopUpdates() {
+        stopMonitoring();
+        removeLocationUpdates();
+    }
+
+    private void removeLocationUpdates() {
         fusedLocationClient.removeLocationUpdates(locationCallback);
+        fusedLocationClient.removeLocationUpdates(intervalCallback);
+    }
+
+    @Override
+    protected void restartLocationUpdates() {
+        removeLocationUpdates();
+        requestLocationUpdates();
+    }
+
+    private LocationRequest createRequest(long interval) {
+        LocationRequest locationRequest = new LocationRequest();
+        locationRequest.setPriority(getPriority(config.getAccuracy()));
+        locationRequest.setInterval(interval);
+        return locationRequest;
     }
 
     @SuppressLint("MissingPermission")
@@ -53,7 +85,7 @@ public class GooglePositionProvider extends PositionProvider {
             @Override
             public void onSuccess(Location location) {
                 if (location != null) {
-                    listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel(context)));
+                    listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel()));
                 }
             }
         });
@@ -74,9 +106,16 @@ public class GooglePositionProvider extends PositionProvider {
         @Override
         public void onLocationResult(LocationResult locationResult) {
             if (locationResult != null) {
-                for (Location location : locationResult.getLocations()) {
-                    processLocation(location);
-                }
+                processLocations(locationResult.getLocations());
+            }
+        }
+    };
+
+    private LocationCallback intervalCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(LocationResult locationResult) {
+            if (locationResult != null) {
+                processLocations(locationResult.getLocations());
             }
         }
     };
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Drops locations with an estimated accuracy worse than the limit in meters. Locations without an
+ * accuracy estimate and a zero limit pass.
+ */
+public class AccuracyFilter extends PositionFilter {
+
+    private double accuracy;
+
+    public AccuracyFilter(double accuracy) {
+        super("accuracy");
+        this.accuracy = accuracy;
+    }
+
+    public void setAccuracy(double accuracy) {
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (accuracy > 0 && location.hasAccuracy() && location.getAccuracy() > accuracy) {
+            return Result.DROP;
+        }
+        return Result.PASS;
+    }
+
+}
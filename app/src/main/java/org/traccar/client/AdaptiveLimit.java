@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+/**
+ * Adjusts upload batch size and number of parallel requests with additive increase and
+ * multiplicative decrease. Both values double until the first slowdown, then fast requests grow
+ * the batch by one position per request and the window by one request per round trip. Slow
+ * requests halve the batch, failures halve both values.
+ */
+public class AdaptiveLimit {
+
+    public static final long TARGET_LATENCY = 5 * 1000;
+
+    private int batch;
+    private int maxBatch;
+    private int window;
+    private final int maxWindow;
+
+    private boolean slowStart = true;
+    private int acknowledged;
+
+    public AdaptiveLimit(int batch, int maxBatch, int window, int maxWindow) {
+        this.maxBatch = Math.max(maxBatch, 1);
+        this.maxWindow = Math.max(maxWindow, 1);
+        this.batch = clamp(batch, this.maxBatch);
+        this.window = clamp(window, this.maxWindow);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(Math.min(value, max), 1);
+    }
+
+    public int getBatch() {
+        return batch;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = Math.max(maxBatch, 1);
+        batch = clamp(batch, this.maxBatch);
+    }
+
+    /**
+     * Returns true if batch size or window changed.
+     */
+    public boolean onSuccess(long latency) {
+        int oldBatch = batch;
+        int oldWindow = window;
+        if (latency > TARGET_LATENCY) {
+            slowStart = false;
+            batch = clamp(batch / 2, maxBatch);
+        } else if (slowStart) {
+            batch = clamp(batch * 2, maxBatch);
+            window = clamp(window * 2, maxWindow);
+        } else {
+            batch = clamp(batch + 1, maxBatch);
+            acknowledged += 1;
+            if (acknowledged >= window) {
+                acknowledged = 0;
+                window = clamp(window + 1, maxWindow);
+            }
+        }
+        return batch != oldBatch || window != oldWindow;
+    }
+
+    /**
+     * Returns true if batch size or window changed.
+     */
+    public boolean onFailure() {
+        int oldBatch = batch;
+        int oldWindow = window;
+        slowStart = false;
+        acknowledged = 0;
+        batch = clamp(batch / 2, maxBatch);
+        window = clamp(window / 2, maxWindow);
+        return batch != oldBatch || window != oldWindow;
+    }
+
+    @Override
+    public String toString() {
+        return "batch:" + batch + " window:" + window;
+    }
+
+}
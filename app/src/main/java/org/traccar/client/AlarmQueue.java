@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Priority lane for alarm positions. Alarms are persisted in the position buffer and sent one
+ * at a time on a dedicated executor, so they never wait behind backlog requests, and they are
+ * retried with a short capped backoff until the server acknowledges them. Alarms are never dropped,
+ * a rejection is more likely a wrong device id or server URL than a bad alarm, so it is reported
+ * and retried like any other failure.
+ */
+public class AlarmQueue {
+
+    private static final String TAG = AlarmQueue.class.getSimpleName();
+
+    private static final long BASE_DELAY = 1000;
+    private static final long MAX_DELAY = 15 * 1000;
+
+    public interface AlarmHandler {
+        void onComplete(boolean success);
+    }
+
+    private static AlarmQueue instance;
+
+    public static synchronized AlarmQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SharedPreferences preferences;
+    private final DatabaseHelper databaseHelper;
+    private final HttpTransport transport = new HttpTransport();
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final RetryPolicy retryPolicy =
+            new BackoffRetryPolicy(BASE_DELAY, MAX_DELAY, MAX_DELAY, Integer.MAX_VALUE, new Random());
+    private final List<AlarmHandler> handlers = new ArrayList<>();
+
+    private boolean isSending;
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private AlarmQueue(Context context) {
+        this.context = context;
+        preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        databaseHelper = new DatabaseHelper(context);
+    }
+
+    /**
+     * Persists the alarm and starts sending immediately. The handler is called once all queued
+     * alarms are delivered, or after the first failed attempt while retries continue.
+     */
+    public void send(Position position, String alarm, AlarmHandler alarmHandler) {
+        position.setAlarm(alarm);
+        if (alarmHandler != null) {
+            handlers.add(alarmHandler);
+        }
+        databaseHelper.insertPositionAsync(position, new DatabaseHelper.DatabaseHandler<Void>() {
+            @Override
+            public void onComplete(boolean success, Void result) {
+                if (success) {
+                    retryPolicy.onSuccess();
+                    drain();
+                } else {
+                    notifyHandlers(false);
+                }
+            }
+        });
+    }
+
+    public void drain() {
+        if (isSending) {
+            return;
+        }
+        isSending = true;
+        handler.removeCallbacks(retryTask);
+        databaseHelper.selectAlarmAsync(new DatabaseHelper.DatabaseHandler<Position>() {
+            @Override
+            public void onComplete(boolean success, Position result) {
+                if (!success) {
+                    isSending = false;
+                    retry();
+                } else if (result == null) {
+                    isSending = false;
+                    notifyHandlers(true);
+                } else {
+                    send(result);
+                }
+            }
+        });
+    }
+
+    private void send(final Position position) {
+        Log.d(TAG, "send alarm (id:" + position.getId() + " alarm:" + position.getAlarm() + ")");
+        String request = ProtocolFormatter.formatRequest(
+                preferences.getString(MainFragment.KEY_URL, context.getString(R.string.settings_url_default_value)),
+                position, position.getAlarm());
+        RequestManager.sendRequestAsync(executor, transport, request, null, new RequestManager.ResponseHandler() {
+            @Override
+            public void onComplete(HttpTransport.Response response) {
+                if (response.isSuccess()) {
+                    retryPolicy.onSuccess();
+                    databaseHelper.deletePositionAsync(position.getId(), new DatabaseHelper.DatabaseHandler<Void>() {
+                        @Override
+                        public void onComplete(boolean success, Void result) {
+                            isSending = false;
+                            if (success) {
+                                drain();
+                            } else {
+                                retry();
+                            }
+                        }
+                    });
+                } else {
+                    isSending = false;
+                    StatusActivity.addMessage(context.getString(
+                            response.getStatus() == HttpTransport.Status.CLIENT_ERROR
+                                    ? R.string.status_alarm_rejected : R.string.status_send_fail));
+                    retryPolicy.onFailure();
+                    notifyHandlers(false);
+                    retry();
+                }
+            }
+        });
+    }
+
+    private void retry() {
+        long delay = retryPolicy.getDelay();
+        Log.d(TAG, "retry alarm (delay:" + delay + ")");
+        handler.postDelayed(retryTask, delay);
+    }
+
+    private void notifyHandlers(boolean success) {
+        for (AlarmHandler alarmHandler : handlers) {
+            alarmHandler.onComplete(success);
+        }
+        handlers.clear();
+    }
+
+}
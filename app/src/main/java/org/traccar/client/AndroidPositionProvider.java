@@ -26,42 +26,45 @@ import android.os.Looper;
 public class AndroidPositionProvider extends PositionProvider implements LocationListener {
 
     private LocationManager locationManager;
-    private String provider;
 
     public AndroidPositionProvider(Context context, PositionListener listener) {
         super(context, listener);
         locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-        provider = getProvider(preferences.getString(MainFragment.KEY_ACCURACY, "medium"));
     }
 
-    @SuppressLint("MissingPermission")
     public void startUpdates() {
-        boolean isCharging = chargingManager != null ? chargingManager.isCharging() : false;
-        setupChargingVariables(isCharging);
-        if (chargingManager != null) {
-            chargingManager.start();
-        }
-        if(temperatureManager != null) {
-            temperatureManager.start();
-        }
+        setupChargingVariables(deviceStateMonitor.getState().isCharging());
+        startMonitoring();
+        requestLocationUpdates();
+    }
 
+    @SuppressLint("MissingPermission")
+    private void requestLocationUpdates() {
+        String provider = getProvider(config.getAccuracy());
         try {
-            locationManager.requestLocationUpdates(
-                    provider, distance_angle_allowed && (distance > 0 || angle > 0) ? MINIMUM_INTERVAL : interval, 0, this);
+            locationManager.requestLocationUpdates(provider, getRequestInterval(), getRequestDistance(), this);
+            if (getRequestDistance() > 0) {
+                locationManager.requestLocationUpdates(provider, interval, 0, intervalListener);
+            }
         } catch (RuntimeException e) {
             listener.onPositionError(e);
         }
     }
 
     public void stopUpdates() {
-        if (chargingManager != null) {
-            chargingManager.stop();
-        }
-        if(temperatureManager != null) {
-            temperatureManager.stop();
-        }
+        stopMonitoring();
+        removeLocationUpdates();
+    }
 
+    private void removeLocationUpdates() {
         locationManager.removeUpdates(this);
+        locationManager.removeUpdates(intervalListener);
+    }
+
+    @Override
+    protected void restartLocationUpdates() {
+        removeLocationUpdates();
+        requestLocationUpdates();
     }
 
     @SuppressLint("MissingPermission")
@@ -69,12 +72,12 @@ public class AndroidPositionProvider extends PositionProvider implements Locatio
         try {
             Location location = locationManager.getLastKnownLocation(LocationManager.PASSIVE_PROVIDER);
             if (location != null) {
-                listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel(context)));
+                listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel()));
             } else {
-                locationManager.requestSingleUpdate(provider, new LocationListener() {
+                locationManager.requestSingleUpdate(getProvider(config.getAccuracy()), new LocationListener() {
                     @Override
                     public void onLocationChanged(Location location) {
-                        listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel(context)));
+                        listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel()));
                     }
 
                     @Override
@@ -111,6 +114,25 @@ public class AndroidPositionProvider extends PositionProvider implements Locatio
         processLocation(location);
     }
 
+    private LocationListener intervalListener = new LocationListener() {
+        @Override
+        public void onLocationChanged(Location location) {
+            processLocation(location);
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    };
+
     @Override
     public void onStatusChanged(String provider, int status, Bundle extras) {
     }
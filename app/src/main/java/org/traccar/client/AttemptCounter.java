@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Counts failed send attempts per buffered row id. Chunks sent concurrently through a send window
+ * fail in any order, so every chunk keeps its own count, keyed by its first row id.
+ */
+public class AttemptCounter {
+
+    private final Map<Long, Integer> attempts = new HashMap<>();
+
+    public int count(long id) {
+        Integer count = attempts.get(id);
+        count = count != null ? count + 1 : 1;
+        attempts.put(id, count);
+        return count;
+    }
+
+    public int get(long id) {
+        Integer count = attempts.get(id);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Forgets the rows in the range, for example once they are deleted or split into single rows.
+     */
+    public void clear(long fromId, long toId) {
+        Iterator<Long> iterator = attempts.keySet().iterator();
+        while (iterator.hasNext()) {
+            long id = iterator.next();
+            if (id >= fromId && id <= toId) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        attempts.clear();
+    }
+
+}
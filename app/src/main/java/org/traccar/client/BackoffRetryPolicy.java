@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with full jitter, so that devices do not retry in lockstep after a server
+ * outage. After a number of consecutive failures the circuit opens and attempts pause for the
+ * open delay, after which a single probe decides whether to close the circuit again.
+ */
+public class BackoffRetryPolicy implements RetryPolicy {
+
+    private static final long BASE_DELAY = 5 * 1000;
+    private static final long MAX_DELAY = 5 * 60 * 1000;
+    private static final long OPEN_DELAY = 15 * 60 * 1000;
+    private static final int FAILURE_THRESHOLD = 8;
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long openDelay;
+    private final int failureThreshold;
+    private final Random random;
+
+    private State state = State.CLOSED;
+    private int failures;
+
+    public BackoffRetryPolicy() {
+        this(new Random());
+    }
+
+    public BackoffRetryPolicy(Random random) {
+        this(BASE_DELAY, MAX_DELAY, OPEN_DELAY, FAILURE_THRESHOLD, random);
+    }
+
+    public BackoffRetryPolicy(long baseDelay, long maxDelay, long openDelay, int failureThreshold, Random random) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.openDelay = openDelay;
+        this.failureThreshold = failureThreshold;
+        this.random = random;
+    }
+
+    @Override
+    public State getState() {
+        return state;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    @Override
+    public long getDelay() {
+        if (state == State.OPEN) {
+            return openDelay / 2 + (long) (random.nextDouble() * openDelay / 2);
+        }
+        long limit = maxDelay;
+        if (failures <= 16) {
+            limit = Math.min(baseDelay << Math.max(failures - 1, 0), maxDelay);
+        }
+        return (long) (random.nextDouble() * limit);
+    }
+
+    @Override
+    public void onAttempt() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+        }
+    }
+
+    @Override
+    public void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    @Override
+    public void onFailure() {
+        failures += 1;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return state + " (failures:" + failures + ")";
+    }
+
+}
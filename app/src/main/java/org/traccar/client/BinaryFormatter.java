@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary alternative to {@link ProtocolFormatter} for batches of positions from one
+ * device. Frame layout:
+ *
+ * <pre>
+ * version (byte), device id length (varint), device id (UTF-8), position count (varint)
+ * for each position:
+ *   time in seconds, latitude and longitude in 1e-7 degrees, speed in 0.01 knots,
+ *   course in 0.1 degrees and altitude in 0.1 meters, each as zigzag varint delta
+ *   from the previous position (the first position is relative to zero, course deltas
+ *   wrap around 360 degrees)
+ *   accuracy in 0.1 meters (varint), battery in 0.1 percent (varint), flags (byte),
+ *   temperature in 0.1 degrees (zigzag varint, only with FLAG_TEMPERATURE)
+ * </pre>
+ *
+ * Not thread safe, the output buffer is reused between frames.
+ */
+public class BinaryFormatter {
+
+    public static final int VERSION = 1;
+
+    public static final double COORDINATE_SCALE = 10000000;
+    public static final double SPEED_SCALE = 100;
+    public static final double COURSE_SCALE = 10;
+    public static final double ALTITUDE_SCALE = 10;
+    public static final double ACCURACY_SCALE = 10;
+    public static final double BATTERY_SCALE = 10;
+    public static final double TEMPERATURE_SCALE = 10;
+
+    public static final long COURSE_RANGE = 3600;
+
+    public static final int FLAG_IGNITION = 1;
+    public static final int FLAG_IGNITION_ON = 2;
+    public static final int FLAG_TEMPERATURE = 4;
+    public static final int FLAG_MOCK = 8;
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+
+    public byte[] formatBatch(List<Position> positions) {
+        length = 0;
+        writeByte(VERSION);
+
+        byte[] deviceId = encodeString(positions.isEmpty() ? "" : positions.get(0).getDeviceId());
+        writeVarint(deviceId.length);
+        ensureCapacity(deviceId.length);
+        System.arraycopy(deviceId, 0, buffer, length, deviceId.length);
+        length += deviceId.length;
+
+        writeVarint(positions.size());
+
+        long time = 0;
+        long latitude = 0;
+        long longitude = 0;
+        long speed = 0;
+        long course = 0;
+        long altitude = 0;
+        for (Position position : positions) {
+            long value = position.getTime().getTime() / 1000;
+            writeSigned(value - time);
+            time = value;
+
+            value = Math.round(position.getLatitude() * COORDINATE_SCALE);
+            writeSigned(value - latitude);
+            latitude = value;
+
+            value = Math.round(position.getLongitude() * COORDINATE_SCALE);
+            writeSigned(value - longitude);
+            longitude = value;
+
+            value = Math.round(position.getSpeed() * SPEED_SCALE);
+            writeSigned(value - speed);
+            speed = value;
+
+            value = Math.round(position.getCourse() * COURSE_SCALE) % COURSE_RANGE;
+            long delta = (value - course) % COURSE_RANGE;
+            if (delta >= COURSE_RANGE / 2) {
+                delta -= COURSE_RANGE;
+            } else if (delta < -COURSE_RANGE / 2) {
+                delta += COURSE_RANGE;
+            }
+            writeSigned(delta);
+            course = value;
+
+            value = Math.round(position.getAltitude() * ALTITUDE_SCALE);
+            writeSigned(value - altitude);
+            altitude = value;
+
+            writeVarint(Math.max(Math.round(position.getAccuracy() * ACCURACY_SCALE), 0));
+            writeVarint(Math.max(Math.round(position.getBattery() * BATTERY_SCALE), 0));
+
+            int flags = 0;
+            if (position.getIgnition() != -1) {
+                flags |= FLAG_IGNITION;
+                if (position.getIgnition() == 1) {
+                    flags |= FLAG_IGNITION_ON;
+                }
+            }
+            if (!Float.isNaN(position.getTemperature())) {
+                flags |= FLAG_TEMPERATURE;
+            }
+            if (position.getMock()) {
+                flags |= FLAG_MOCK;
+            }
+            writeByte(flags);
+
+            if ((flags & FLAG_TEMPERATURE) != 0) {
+                writeSigned(Math.round(position.getTemperature() * TEMPERATURE_SCALE));
+            }
+        }
+
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static byte[] encodeString(String value) {
+        try {
+            return (value != null ? value : "").getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeSigned(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+}
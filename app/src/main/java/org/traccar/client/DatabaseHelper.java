@@ -15,21 +15,30 @@
  */
 package org.traccar.client;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.os.AsyncTask;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
-    public static final int DATABASE_VERSION = 3000;
+    public static final int DATABASE_VERSION = 3002;
     public static final String DATABASE_NAME = "traccar.db";
 
+    private static final String POSITION_COLUMNS = "id, deviceId, time, latitude, longitude, altitude, speed, "
+            + "course, accuracy, battery, ignition, temperature, mock, alarm";
+    private static final String DATA_COLUMNS = "deviceId, time, latitude, longitude, altitude, speed, "
+            + "course, accuracy, battery, ignition, temperature, mock, alarm";
+
+    public static final int DEAD_LETTER_LIMIT = 1000;
+
     public interface DatabaseHandler<T> {
         void onComplete(boolean success, T result);
     }
@@ -63,9 +72,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     private SQLiteDatabase db;
 
+    // statements are not thread safe, all database tasks run on the serial executor
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement deleteStatement;
+    private SQLiteStatement deleteUpToStatement;
+    private SQLiteStatement deadLetterStatement;
+    private SQLiteStatement deadLetterTrimStatement;
+
     public DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
         db = getWritableDatabase();
+
+        insertStatement = db.compileStatement("INSERT INTO position (deviceId, time, latitude, longitude, "
+                + "altitude, speed, course, accuracy, battery, ignition, temperature, mock, alarm) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        deleteStatement = db.compileStatement("DELETE FROM position WHERE id = ?");
+        deleteUpToStatement = db.compileStatement("DELETE FROM position WHERE id <= ? AND alarm IS NULL");
+        deadLetterStatement = db.compileStatement("INSERT INTO dead_letter (" + DATA_COLUMNS + ", reason, failed) "
+                + "SELECT " + DATA_COLUMNS + ", ?, ? FROM position WHERE id = ?");
+        deadLetterTrimStatement = db.compileStatement(
+                "DELETE FROM dead_letter WHERE id <= (SELECT MAX(id) FROM dead_letter) - " + DEAD_LETTER_LIMIT);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // readers do not block the writer, so inserts continue while the buffer is drained
+        db.enableWriteAheadLogging();
+        // safe against application crashes in WAL mode, only the last commits can be lost on power failure
+        db.execSQL("PRAGMA synchronous = NORMAL");
     }
 
     @Override
@@ -83,36 +117,79 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "battery REAL," +
                 "ignition INTEGER," +
                 "temperature REAL," +
-                "mock INTEGER)");
+                "mock INTEGER," +
+                "alarm TEXT)");
+        createDeadLetterTable(db);
+    }
+
+    private static void createDeadLetterTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE dead_letter (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "deviceId TEXT," +
+                "time INTEGER," +
+                "latitude REAL," +
+                "longitude REAL," +
+                "altitude REAL," +
+                "speed REAL," +
+                "course REAL," +
+                "accuracy REAL," +
+                "battery REAL," +
+                "ignition INTEGER," +
+                "temperature REAL," +
+                "mock INTEGER," +
+                "alarm TEXT," +
+                "reason TEXT," +
+                "failed INTEGER)");
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS position;");
-        onCreate(db);
+        if (oldVersion < 3000) {
+            dropTables(db);
+            onCreate(db);
+            return;
+        }
+        if (oldVersion < 3001) {
+            db.execSQL("ALTER TABLE position ADD COLUMN alarm TEXT");
+        }
+        if (oldVersion < 3002) {
+            createDeadLetterTable(db);
+        }
     }
 
     public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS position;");
+        dropTables(db);
         onCreate(db);
     }
 
+    private static void dropTables(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS position;");
+        db.execSQL("DROP TABLE IF EXISTS dead_letter;");
+    }
+
     public void insertPosition(Position position) {
-        ContentValues values = new ContentValues();
-        values.put("deviceId", position.getDeviceId());
-        values.put("time", position.getTime().getTime());
-        values.put("latitude", position.getLatitude());
-        values.put("longitude", position.getLongitude());
-        values.put("altitude", position.getAltitude());
-        values.put("speed", position.getSpeed());
-        values.put("course", position.getCourse());
-        values.put("accuracy", position.getAccuracy());
-        values.put("battery", position.getBattery());
-        values.put("ignition", position.getIgnition());
-        values.put("temperature", position.getTemperature());
-        values.put("mock", position.getMock() ? 1 : 0);
-
-        db.insertOrThrow("position", null, values);
+        insertStatement.clearBindings();
+        if (position.getDeviceId() != null) {
+            insertStatement.bindString(1, position.getDeviceId());
+        }
+        insertStatement.bindLong(2, position.getTime().getTime());
+        insertStatement.bindDouble(3, position.getLatitude());
+        insertStatement.bindDouble(4, position.getLongitude());
+        insertStatement.bindDouble(5, position.getAltitude());
+        insertStatement.bindDouble(6, position.getSpeed());
+        insertStatement.bindDouble(7, position.getCourse());
+        insertStatement.bindDouble(8, position.getAccuracy());
+        insertStatement.bindDouble(9, position.getBattery());
+        insertStatement.bindLong(10, position.getIgnition());
+        insertStatement.bindDouble(11, position.getTemperature());
+        insertStatement.bindLong(12, position.getMock() ? 1 : 0);
+        if (position.getAlarm() != null) {
+            insertStatement.bindString(13, position.getAlarm());
+        }
+
+        if (insertStatement.executeInsert() == -1) {
+            throw new SQLException();
+        }
     }
 
     public void insertPositionAsync(final Position position, DatabaseHandler<Void> handler) {
@@ -125,28 +202,61 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }.execute();
     }
 
-    public Position selectPosition() {
+    public void insertPositions(List<Position> positions) {
+        db.beginTransaction();
+        try {
+            for (Position position : positions) {
+                insertPosition(position);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void insertPositionsAsync(final List<Position> positions, DatabaseHandler<Void> handler) {
+        new DatabaseAsyncTask<Void>(handler) {
+            @Override
+            protected Void executeMethod() {
+                insertPositions(positions);
+                return null;
+            }
+        }.execute();
+    }
+
+    private Position readPosition(Cursor cursor) {
         Position position = new Position();
 
-        Cursor cursor = db.rawQuery("SELECT * FROM position ORDER BY id LIMIT 1", null);
+        // column order is fixed by POSITION_COLUMNS, so no index lookups per row
+        int index = 0;
+        position.setId(cursor.getLong(index++));
+        position.setDeviceId(cursor.getString(index++));
+        position.setTime(new Date(cursor.getLong(index++)));
+        position.setLatitude(cursor.getDouble(index++));
+        position.setLongitude(cursor.getDouble(index++));
+        position.setAltitude(cursor.getDouble(index++));
+        position.setSpeed(cursor.getDouble(index++));
+        position.setCourse(cursor.getDouble(index++));
+        position.setAccuracy(cursor.getDouble(index++));
+        position.setBattery(cursor.getDouble(index++));
+        position.setIgnition(cursor.getInt(index++));
+        position.setTemperature(cursor.getFloat(index++));
+        position.setMock(cursor.getInt(index++) > 0);
+        position.setAlarm(cursor.getString(index));
+
+        return position;
+    }
+
+    public Position selectPosition() {
+        Position position;
+
+        Cursor cursor = db.rawQuery("SELECT " + POSITION_COLUMNS + " FROM position ORDER BY id LIMIT 1", null);
         try {
             if (cursor.getCount() > 0) {
 
                 cursor.moveToFirst();
 
-                position.setId(cursor.getLong(cursor.getColumnIndex("id")));
-                position.setDeviceId(cursor.getString(cursor.getColumnIndex("deviceId")));
-                position.setTime(new Date(cursor.getLong(cursor.getColumnIndex("time"))));
-                position.setLatitude(cursor.getDouble(cursor.getColumnIndex("latitude")));
-                position.setLongitude(cursor.getDouble(cursor.getColumnIndex("longitude")));
-                position.setAltitude(cursor.getDouble(cursor.getColumnIndex("altitude")));
-                position.setSpeed(cursor.getDouble(cursor.getColumnIndex("speed")));
-                position.setCourse(cursor.getDouble(cursor.getColumnIndex("course")));
-                position.setAccuracy(cursor.getDouble(cursor.getColumnIndex("accuracy")));
-                position.setBattery(cursor.getDouble(cursor.getColumnIndex("battery")));
-                position.setIgnition(cursor.getInt(cursor.getColumnIndex("ignition")));
-                position.setTemperature(cursor.getFloat(cursor.getColumnIndex("temperature")));
-                position.setMock(cursor.getInt(cursor.getColumnIndex("mock")) > 0);
+                position = readPosition(cursor);
 
             } else {
                 return null;
@@ -167,8 +277,65 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }.execute();
     }
 
+    public Position selectAlarm() {
+        Position position = null;
+
+        Cursor cursor = db.rawQuery("SELECT " + POSITION_COLUMNS
+                + " FROM position WHERE alarm IS NOT NULL ORDER BY id LIMIT 1", null);
+        try {
+            if (cursor.moveToFirst()) {
+                position = readPosition(cursor);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return position;
+    }
+
+    public void selectAlarmAsync(DatabaseHandler<Position> handler) {
+        new DatabaseAsyncTask<Position>(handler) {
+            @Override
+            protected Position executeMethod() {
+                return selectAlarm();
+            }
+        }.execute();
+    }
+
+    public List<Position> selectPositions(int limit) {
+        return selectPositions(0, limit);
+    }
+
+    public List<Position> selectPositions(long fromId, int limit) {
+        List<Position> positions = new ArrayList<>();
+
+        // alarms are delivered by AlarmQueue and never selected or deleted as part of the backlog
+
+        Cursor cursor = db.rawQuery("SELECT " + POSITION_COLUMNS + " FROM position WHERE id > ? AND alarm IS NULL ORDER BY id LIMIT ?",
+                new String[] { String.valueOf(fromId), String.valueOf(limit) });
+        try {
+            while (cursor.moveToNext()) {
+                positions.add(readPosition(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return positions;
+    }
+
+    public void selectPositionsAsync(final long fromId, final int limit, DatabaseHandler<List<Position>> handler) {
+        new DatabaseAsyncTask<List<Position>>(handler) {
+            @Override
+            protected List<Position> executeMethod() {
+                return selectPositions(fromId, limit);
+            }
+        }.execute();
+    }
+
     public void deletePosition(long id) {
-        if (db.delete("position", "id = ?", new String[] { String.valueOf(id) }) != 1) {
+        deleteStatement.bindLong(1, id);
+        if (deleteStatement.executeUpdateDelete() != 1) {
             throw new SQLException();
         }
     }
@@ -183,4 +350,67 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }.execute();
     }
 
+    public int deletePositionsUpTo(long id) {
+        int count;
+        db.beginTransaction();
+        try {
+            deleteUpToStatement.bindLong(1, id);
+            count = deleteUpToStatement.executeUpdateDelete();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
+    public void deletePositionsUpToAsync(final long id, DatabaseHandler<Integer> handler) {
+        new DatabaseAsyncTask<Integer>(handler) {
+            @Override
+            protected Integer executeMethod() {
+                return deletePositionsUpTo(id);
+            }
+        }.execute();
+    }
+
+    /**
+     * Moves a position the server will never accept out of the buffer, so that the rows behind
+     * it can be delivered. Only the newest {@link #DEAD_LETTER_LIMIT} rows are kept.
+     */
+    public void deadLetterPosition(long id, String reason) {
+        db.beginTransaction();
+        try {
+            deadLetterStatement.bindString(1, reason);
+            deadLetterStatement.bindLong(2, System.currentTimeMillis());
+            deadLetterStatement.bindLong(3, id);
+            if (deadLetterStatement.executeInsert() == -1) {
+                throw new SQLException();
+            }
+            deletePosition(id);
+            deadLetterTrimStatement.executeUpdateDelete();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void deadLetterPositionAsync(final long id, final String reason, DatabaseHandler<Void> handler) {
+        new DatabaseAsyncTask<Void>(handler) {
+            @Override
+            protected Void executeMethod() {
+                deadLetterPosition(id, reason);
+                return null;
+            }
+        }.execute();
+    }
+
+    public int selectDeadLetterCount() {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM dead_letter", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
 }
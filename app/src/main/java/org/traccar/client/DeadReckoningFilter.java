@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Dead reckoning stage. Predicts the current position from the speed and course of the last
+ * reported location, the same way the server extrapolates, and accepts a location once it deviates
+ * from the prediction by more than the limit in meters. Otherwise the location is dropped, so the
+ * extrapolated track stays within the limit of every fix until the next report. Reports forced by
+ * silence come from an {@link IntervalFilter} placed before this stage. With Kalman smoothing the
+ * server receives smoothed coordinates, so both the fix and the last report are taken as smoothed
+ * by the given filter. A zero deviation disables the stage.
+ */
+public class DeadReckoningFilter extends PositionFilter {
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final KalmanFilter kalmanFilter;
+
+    private double deviation;
+    private Location reported;
+
+    public DeadReckoningFilter(double deviation) {
+        this(deviation, null);
+    }
+
+    public DeadReckoningFilter(double deviation, KalmanFilter kalmanFilter) {
+        super("dead reckoning");
+        this.deviation = deviation;
+        this.kalmanFilter = kalmanFilter;
+    }
+
+    public void setDeviation(double deviation) {
+        this.deviation = deviation;
+    }
+
+    /**
+     * Sets the last location as sent to the server, used in place of the last accepted fix with the
+     * same time.
+     */
+    public void setReported(Location reported) {
+        this.reported = reported;
+    }
+
+    /**
+     * Distance in meters between the location and the position predicted from the last location.
+     */
+    public static double predictionError(Location location, Location lastLocation) {
+        double dt = (location.getTime() - lastLocation.getTime()) / 1000.0;
+        double travelled = lastLocation.hasSpeed() && dt > 0 ? lastLocation.getSpeed() * dt : 0;
+        double course = lastLocation.hasBearing() ? Math.toRadians(lastLocation.getBearing()) : 0;
+        double longitude = location.getLongitude() - lastLocation.getLongitude();
+        if (longitude > 180) {
+            longitude -= 360;
+        } else if (longitude < -180) {
+            longitude += 360;
+        }
+        double east = Math.toRadians(longitude) * Math.cos(Math.toRadians(lastLocation.getLatitude())) * EARTH_RADIUS;
+        double north = Math.toRadians(location.getLatitude() - lastLocation.getLatitude()) * EARTH_RADIUS;
+        return Math.hypot(east - travelled * Math.sin(course), north - travelled * Math.cos(course));
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (lastLocation == null || deviation <= 0) {
+            return Result.PASS;
+        }
+        if (reported != null && reported.getTime() == lastLocation.getTime()) {
+            lastLocation = reported;
+        }
+        if (kalmanFilter != null) {
+            location = kalmanFilter.smooth(location);
+        }
+        return predictionError(location, lastLocation) > deviation ? Result.ACCEPT : Result.DROP;
+    }
+
+}
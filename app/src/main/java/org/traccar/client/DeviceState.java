@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+/**
+ * Immutable snapshot of battery, power and temperature state.
+ */
+public class DeviceState {
+
+    public static final DeviceState UNKNOWN = new DeviceState(0, false, Float.NaN);
+
+    private final double batteryLevel;
+    private final boolean charging;
+    private final float temperature;
+
+    public DeviceState(double batteryLevel, boolean charging, float temperature) {
+        this.batteryLevel = batteryLevel;
+        this.charging = charging;
+        this.temperature = temperature;
+    }
+
+    /**
+     * Battery level in percent.
+     */
+    public double getBatteryLevel() {
+        return batteryLevel;
+    }
+
+    public boolean isCharging() {
+        return charging;
+    }
+
+    /**
+     * Ambient temperature if the device has a sensor, battery temperature otherwise.
+     */
+    public float getTemperature() {
+        return temperature;
+    }
+
+    public DeviceState withTemperature(float temperature) {
+        return new DeviceState(batteryLevel, charging, temperature);
+    }
+
+    @Override
+    public String toString() {
+        return "battery:" + batteryLevel + " charging:" + charging + " temperature:" + temperature;
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.BatteryManager;
+import android.util.Log;
+
+/**
+ * Keeps a snapshot of battery, power and temperature state current from a single battery
+ * broadcast subscription and the ambient temperature sensor, so that reading it costs no binder
+ * calls.
+ */
+public class DeviceStateMonitor extends BroadcastReceiver implements SensorEventListener {
+
+    private static final String TAG = DeviceStateMonitor.class.getSimpleName();
+
+    public interface ChargingHandler {
+        void onChargingUpdate(boolean isCharging);
+    }
+
+    private final Context context;
+    private final ChargingHandler handler;
+    private final SensorManager sensorManager;
+    private final Sensor temperatureSensor;
+
+    private volatile DeviceState state;
+    private boolean started;
+
+    /**
+     * Handler is notified when the device is plugged in or unplugged, it can be null. Temperature
+     * sensor is only used when temperature monitoring is enabled.
+     */
+    public DeviceStateMonitor(Context context, ChargingHandler handler, boolean temperatureMonitoring) {
+        this.context = context;
+        this.handler = handler;
+
+        if (temperatureMonitoring) {
+            sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+            temperatureSensor = sensorManager.getDefaultSensor(Sensor.TYPE_AMBIENT_TEMPERATURE);
+            if (temperatureSensor == null) {
+                StatusActivity.addMessage("Ambient temperature sensor is missing! Using battery temperature.");
+            } else {
+                StatusActivity.addMessage("Ambient temperature sensor is available!");
+            }
+        } else {
+            sensorManager = null;
+            temperatureSensor = null;
+        }
+
+        state = createState(context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED)));
+    }
+
+    public DeviceState getState() {
+        return state;
+    }
+
+    private DeviceState createState(Intent batteryIntent) {
+        if (batteryIntent == null) {
+            return DeviceState.UNKNOWN;
+        }
+        int level = batteryIntent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
+        int scale = batteryIntent.getIntExtra(BatteryManager.EXTRA_SCALE, 1);
+        boolean charging = batteryIntent.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1) > 0;
+        float temperature;
+        if (temperatureSensor == null) {
+            temperature = batteryIntent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, -1) / 10f;
+        } else {
+            temperature = state != null ? state.getTemperature() : Float.NaN;
+        }
+        return new DeviceState((level * 100.0) / scale, charging, temperature);
+    }
+
+    public void start() {
+        if (!started) {
+            started = true;
+            // battery broadcast is sticky, registering delivers the current state right away
+            context.registerReceiver(this, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (temperatureSensor != null) {
+                sensorManager.registerListener(this, temperatureSensor, SensorManager.SENSOR_DELAY_NORMAL);
+            }
+        }
+    }
+
+    public void stop() {
+        if (started) {
+            started = false;
+            context.unregisterReceiver(this);
+            if (temperatureSensor != null) {
+                sensorManager.unregisterListener(this);
+            }
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        boolean wasCharging = state.isCharging();
+        state = createState(intent);
+        if (state.isCharging() != wasCharging && handler != null) {
+            Log.i(TAG, "power " + (state.isCharging() ? "connected" : "disconnected"));
+            handler.onChargingUpdate(state.isCharging());
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (event.values[0] != state.getTemperature()) {
+            state = state.withTemperature(event.values[0]);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+
+}
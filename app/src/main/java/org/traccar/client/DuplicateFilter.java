@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Drops a location with the same time and coordinates as the last accepted one, as delivered by
+ * providers that report the same fix to several requests.
+ */
+public class DuplicateFilter extends PositionFilter {
+
+    public DuplicateFilter() {
+        super("duplicate");
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (lastLocation != null && location.getTime() == lastLocation.getTime()
+                && location.getLatitude() == lastLocation.getLatitude()
+                && location.getLongitude() == lastLocation.getLongitude()) {
+            return Result.DROP;
+        }
+        return Result.PASS;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Accepts a location once the heading changed by the angle in degrees since the last one. The
+ * change is measured the short way round, so 359 to 1 degrees is a change of 2 degrees. A zero
+ * angle disables the stage.
+ */
+public class HeadingFilter extends PositionFilter {
+
+    private double angle;
+
+    public HeadingFilter(double angle) {
+        super("heading");
+        this.angle = angle;
+    }
+
+    public void setAngle(double angle) {
+        this.angle = angle;
+    }
+
+    public static double headingChange(double from, double to) {
+        double change = Math.abs(to - from) % 360;
+        return change > 180 ? 360 - change : change;
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (lastLocation != null && angle > 0 && location.hasBearing() && lastLocation.hasBearing()
+                && headingChange(lastLocation.getBearing(), location.getBearing()) >= angle) {
+            return Result.ACCEPT;
+        }
+        return Result.PASS;
+    }
+
+}
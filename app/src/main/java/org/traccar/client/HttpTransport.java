@@ -0,0 +1,313 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends requests over pooled keep-alive connections. A connection only goes back to the pool
+ * when its response has been fully read and the stream closed, so every response is drained,
+ * including error responses.
+ */
+public class HttpTransport {
+
+    private static final String TAG = HttpTransport.class.getSimpleName();
+
+    private static final int TIMEOUT = 15 * 1000;
+    private static final int BUFFER_SIZE = 4096;
+
+    public static final int MAX_ATTEMPTS = 5;
+
+    public static final long WARM_UP_INTERVAL = 60 * 1000;
+
+    public enum Status {
+        SUCCESS,
+        CLIENT_ERROR,
+        SERVER_ERROR,
+        NETWORK_ERROR
+    }
+
+    public static class Response {
+
+        private final Status status;
+        private final int code;
+        private final long lookupTime;
+        private final long connectTime;
+        private final long firstByteTime;
+        private final long totalTime;
+
+        Response(Status status, int code, long connectTime, long firstByteTime, long totalTime) {
+            this(status, code, 0, connectTime, firstByteTime, totalTime);
+        }
+
+        Response(Status status, int code, long lookupTime, long connectTime, long firstByteTime, long totalTime) {
+            this.status = status;
+            this.code = code;
+            this.lookupTime = lookupTime;
+            this.connectTime = connectTime;
+            this.firstByteTime = firstByteTime;
+            this.totalTime = totalTime;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isSuccess() {
+            return status == Status.SUCCESS;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * Client errors are not worth repeating. Other server errors become permanent once the
+         * same request has failed {@link #MAX_ATTEMPTS} times, while network errors, invalid
+         * responses, timeouts, throttling and gateway errors always remain transient. A permanent response only blames
+         * the request if other requests to the same server succeed; a wrong device id or path
+         * rejects every request the same way.
+         */
+        public boolean isPermanent(int attempts) {
+            switch (status) {
+                case CLIENT_ERROR:
+                    return true;
+                case SERVER_ERROR:
+                    return attempts >= MAX_ATTEMPTS && code >= 500 && (code < 502 || code > 504);
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Time to resolve the server address in milliseconds, only measured by {@link HttpTransport#warmUp}.
+         */
+        public long getLookupTime() {
+            return lookupTime;
+        }
+
+        /**
+         * Time to open the connection in milliseconds. Includes DNS lookup, TCP connect and TLS
+         * handshake for a new connection, and is close to zero for a pooled one.
+         */
+        public long getConnectTime() {
+            return connectTime;
+        }
+
+        /**
+         * Time from sending the request to receiving the response status in milliseconds.
+         */
+        public long getFirstByteTime() {
+            return firstByteTime;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        @Override
+        public String toString() {
+            return status + " (code:" + code + " lookup:" + lookupTime + " connect:" + connectTime
+                    + " ttfb:" + firstByteTime + " total:" + totalTime + ")";
+        }
+
+    }
+
+    private volatile boolean compression;
+    private volatile String warmUrl;
+    private volatile long warmTime;
+
+    public boolean getCompression() {
+        return compression;
+    }
+
+    /**
+     * Sends request bodies gzip compressed with a {@code Content-Encoding} header.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4 + 64);
+        GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream);
+        try {
+            gzipStream.write(data);
+        } finally {
+            gzipStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Only 2xx and 3xx codes confirm a request. Informational codes and -1, which is returned for
+     * a response that is not valid HTTP, are retried like server errors.
+     */
+    public static Status classify(int code) {
+        if (code < 200) {
+            return Status.SERVER_ERROR;
+        } else if (code < 400) {
+            return Status.SUCCESS;
+        } else if (code < 500 && code != 408 && code != 429) {
+            return Status.CLIENT_ERROR;
+        } else {
+            return Status.SERVER_ERROR;
+        }
+    }
+
+    private static long elapsed(long start, long end) {
+        return (end - start) / 1000000;
+    }
+
+    private static InputStream drain(HttpURLConnection connection, Status status) throws IOException {
+        InputStream inputStream = status == Status.SUCCESS ? connection.getInputStream() : connection.getErrorStream();
+        if (inputStream != null) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (inputStream.read(buffer) != -1);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Warm-up throttle, true unless the same server was warmed up within {@link #WARM_UP_INTERVAL}.
+     * Nothing is cached by the app, the lookup only primes the system resolver and the connection
+     * pool.
+     */
+    boolean isWarmUpDue(String request, long now) {
+        return !request.equals(warmUrl) || now - warmTime >= WARM_UP_INTERVAL;
+    }
+
+    void setWarm(String request, long now) {
+        warmUrl = request;
+        warmTime = now;
+    }
+
+    /**
+     * Resolves the server address and opens a connection with a HEAD request, so that the
+     * connection, including its TLS session, is pooled before the first position is sent. Returns
+     * null if the warm-up is throttled. Any response code means the connection is ready.
+     */
+    public Response warmUp(String request) {
+        long now = System.currentTimeMillis();
+        if (!isWarmUpDue(request, now)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        long resolved = start;
+        long connected = start;
+        InputStream inputStream = null;
+        try {
+            URL url = new URL(request);
+            InetAddress.getAllByName(url.getHost());
+            resolved = System.nanoTime();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setReadTimeout(TIMEOUT);
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setRequestMethod("HEAD");
+            connection.connect();
+            connected = System.nanoTime();
+            int code = connection.getResponseCode();
+            long firstByte = System.nanoTime();
+            inputStream = drain(connection, classify(code));
+            setWarm(request, now);
+            return new Response(Status.SUCCESS, code, elapsed(start, resolved), elapsed(resolved, connected),
+                    elapsed(connected, firstByte), elapsed(start, System.nanoTime()));
+        } catch (IOException error) {
+            long end = System.nanoTime();
+            return new Response(Status.NETWORK_ERROR, -1, elapsed(start, resolved), elapsed(resolved, connected),
+                    0, elapsed(start, end));
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            } catch (IOException secondError) {
+                Log.w(TAG, secondError);
+            }
+        }
+    }
+
+    /**
+     * Resets the warm-up throttle, for example after the network changed.
+     */
+    public void resetWarmUp() {
+        warmUrl = null;
+    }
+
+    public Response send(String request, String body) {
+        long start = System.nanoTime();
+        long connected = start;
+        long sent = start;
+        InputStream inputStream = null;
+        try {
+            URL url = new URL(request);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setReadTimeout(TIMEOUT);
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setRequestMethod("POST");
+            byte[] data = null;
+            if (body != null) {
+                data = body.getBytes("UTF-8");
+                if (compression) {
+                    data = compress(data);
+                    connection.setRequestProperty("Content-Encoding", "gzip");
+                }
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(data.length);
+                connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            }
+            connection.connect();
+            connected = System.nanoTime();
+            if (data != null) {
+                OutputStream outputStream = connection.getOutputStream();
+                try {
+                    outputStream.write(data);
+                } finally {
+                    outputStream.close();
+                }
+            }
+            sent = System.nanoTime();
+            int code = connection.getResponseCode();
+            long firstByte = System.nanoTime();
+            Status status = classify(code);
+            inputStream = drain(connection, status);
+            return new Response(
+                    status, code, elapsed(start, connected), elapsed(sent, firstByte), elapsed(start, System.nanoTime()));
+        } catch (IOException error) {
+            long end = System.nanoTime();
+            return new Response(
+                    Status.NETWORK_ERROR, -1, elapsed(start, connected), elapsed(sent, end), elapsed(start, end));
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            } catch (IOException secondError) {
+                Log.w(TAG, secondError);
+            }
+        }
+    }
+
+}
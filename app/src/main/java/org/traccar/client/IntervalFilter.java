@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Accepts a location once the interval in milliseconds has passed since the last one.
+ */
+public class IntervalFilter extends PositionFilter {
+
+    private long interval;
+
+    public IntervalFilter(long interval) {
+        super("interval");
+        this.interval = interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (lastLocation != null && location.getTime() - lastLocation.getTime() >= interval) {
+            return Result.ACCEPT;
+        }
+        return Result.PASS;
+    }
+
+}
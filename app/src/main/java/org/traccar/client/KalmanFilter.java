@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Constant velocity Kalman filter over a local east/north plane in meters. Fixes implying a speed
+ * above the plausible maximum, beyond their own accuracy, are dropped. Otherwise the fix updates
+ * the filter. Fixes are never modified, with smoothing enabled {@link #smooth} returns a copy of
+ * the latest fix with the filtered coordinates and the raw accuracy. The state is held in
+ * primitives, so filtering a fix allocates nothing. A zero maximum speed disables the stage.
+ */
+public class KalmanFilter extends PositionFilter {
+
+    public static final double MAX_SPEED = 100; // m/s
+    public static final double ACCELERATION = 2; // m/s^2
+    public static final double DEFAULT_ACCURACY = 50; // m
+    public static final int MAX_REJECTED = 3;
+
+    private static final double EARTH_RADIUS = 6371008.8;
+    private static final double RECENTER_DISTANCE = 10000;
+
+    private double maxSpeed;
+    private boolean smoothing;
+
+    private boolean initialized;
+    private int rejected;
+    private long time;
+
+    private double originLatitude;
+    private double originLongitude;
+    private double scale;
+
+    private double x;
+    private double y;
+    private double vx;
+    private double vy;
+
+    private double p00;
+    private double p01;
+    private double p11;
+
+    public KalmanFilter(double maxSpeed, boolean smoothing) {
+        super("kalman");
+        this.maxSpeed = maxSpeed;
+        this.smoothing = smoothing;
+    }
+
+    public void setMaxSpeed(double maxSpeed) {
+        if (maxSpeed != this.maxSpeed) {
+            this.maxSpeed = maxSpeed;
+            initialized = false;
+        }
+    }
+
+    public void setSmoothing(boolean smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    private static double getAccuracy(Location location) {
+        return location.hasAccuracy() && location.getAccuracy() > 0 ? location.getAccuracy() : DEFAULT_ACCURACY;
+    }
+
+    private double toX(double longitude) {
+        double delta = longitude - originLongitude;
+        if (delta > 180) {
+            delta -= 360;
+        } else if (delta < -180) {
+            delta += 360;
+        }
+        return Math.toRadians(delta) * scale * EARTH_RADIUS;
+    }
+
+    private double toY(double latitude) {
+        return Math.toRadians(latitude - originLatitude) * EARTH_RADIUS;
+    }
+
+    private double getLatitude() {
+        return originLatitude + Math.toDegrees(y / EARTH_RADIUS);
+    }
+
+    private double getLongitude() {
+        double longitude = originLongitude + Math.toDegrees(x / (scale * EARTH_RADIUS));
+        if (longitude > 180) {
+            longitude -= 360;
+        } else if (longitude < -180) {
+            longitude += 360;
+        }
+        return longitude;
+    }
+
+    private void setOrigin(double latitude, double longitude) {
+        originLatitude = latitude;
+        originLongitude = longitude;
+        scale = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        x = 0;
+        y = 0;
+    }
+
+    private void reset(Location location) {
+        initialized = true;
+        rejected = 0;
+        time = location.getTime();
+        setOrigin(location.getLatitude(), location.getLongitude());
+        vx = 0;
+        vy = 0;
+        double accuracy = getAccuracy(location);
+        p00 = accuracy * accuracy;
+        p01 = 0;
+        p11 = maxSpeed * maxSpeed;
+    }
+
+    @Override
+    protected Result test(Location location, Location lastLocation) {
+        if (maxSpeed <= 0) {
+            return Result.PASS;
+        }
+        if (!initialized) {
+            reset(location);
+            return Result.PASS;
+        }
+        double dt = (location.getTime() - time) / 1000.0;
+        if (dt <= 0) {
+            return Result.PASS;
+        }
+
+        double accuracy = getAccuracy(location);
+        double zx = toX(location.getLongitude());
+        double zy = toY(location.getLatitude());
+        double jump = Math.hypot(zx - x, zy - y) - accuracy - Math.sqrt(p00);
+        if (jump > maxSpeed * dt) {
+            rejected += 1;
+            if (rejected <= MAX_REJECTED) {
+                return Result.DROP;
+            }
+            reset(location);
+            return Result.PASS;
+        }
+        rejected = 0;
+        time = location.getTime();
+
+        double q = ACCELERATION * ACCELERATION;
+        double dt2 = dt * dt;
+        x += vx * dt;
+        y += vy * dt;
+        p00 += dt * (2 * p01 + dt * p11) + q * dt2 * dt2 / 4;
+        p01 += dt * p11 + q * dt2 * dt / 2;
+        p11 += q * dt2;
+
+        double s = p00 + accuracy * accuracy;
+        double k0 = p00 / s;
+        double k1 = p01 / s;
+        double ix = zx - x;
+        double iy = zy - y;
+        x += k0 * ix;
+        y += k0 * iy;
+        vx += k1 * ix;
+        vy += k1 * iy;
+        p11 -= k1 * p01;
+        p01 *= 1 - k0;
+        p00 *= 1 - k0;
+
+        if (Math.abs(x) > RECENTER_DISTANCE || Math.abs(y) > RECENTER_DISTANCE) {
+            setOrigin(getLatitude(), getLongitude());
+        }
+        return Result.PASS;
+    }
+
+    /**
+     * Returns the fix with the filtered coordinates if smoothing is enabled and the fix was the
+     * latest one to update the filter, otherwise the fix itself.
+     */
+    public Location smooth(Location location) {
+        if (!smoothing || maxSpeed <= 0 || !initialized || location.getTime() != time) {
+            return location;
+        }
+        Location result = new Location(location);
+        result.setLatitude(getLatitude());
+        result.setLongitude(getLongitude());
+        return result;
+    }
+
+}
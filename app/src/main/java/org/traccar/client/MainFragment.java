@@ -68,12 +68,28 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
     public static final String KEY_INTERVAL_CHARGING = "interval_charging";
     public static final String KEY_DISTANCE = "distance";
     public static final String KEY_ANGLE = "angle";
+    public static final String KEY_FILTER_ACCURACY = "filter_accuracy";
+    public static final String KEY_SIMPLIFY = "simplify";
+    public static final String KEY_DEAD_RECKONING = "dead_reckoning";
+    public static final String KEY_OUTLIER = "outlier";
+    public static final String KEY_SMOOTHING = "smoothing";
     public static final String KEY_DISTANCE_ANGLE_CHARGING = "distance_angle_charging";
     public static final String KEY_POWER_AS_IGNITION = "power_as_ignition";
     public static final String KEY_TEMPERATURE_MONITORING = "temperature_monitoring";
     public static final String KEY_ACCURACY = "accuracy";
     public static final String KEY_STATUS = "status";
     public static final String KEY_BUFFER = "buffer";
+    public static final String KEY_SERVER_BATCH = "server_batch";
+    public static final String KEY_BATCH = "batch";
+    public static final String KEY_WINDOW = "window";
+    public static final String KEY_PRECISION = "precision";
+    public static final String KEY_COMPRESSION = "compression";
+    public static final String KEY_LIVE = "live";
+    public static final String KEY_ADAPTIVE = "adaptive";
+    public static final String KEY_UNMETERED = "unmetered";
+    public static final String KEY_VALIDATED = "validated";
+    public static final String KEY_BATCHED = "batched";
+    public static final String KEY_MOTION = "motion";
 
     private static final int PERMISSIONS_REQUEST_LOCATION = 2;
 
@@ -139,6 +155,11 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
         findPreference(KEY_INTERVAL_CHARGING).setOnPreferenceChangeListener(numberValidationListener);
         findPreference(KEY_DISTANCE).setOnPreferenceChangeListener(numberValidationListener);
         findPreference(KEY_ANGLE).setOnPreferenceChangeListener(numberValidationListener);
+        findPreference(KEY_FILTER_ACCURACY).setOnPreferenceChangeListener(numberValidationListener);
+        findPreference(KEY_SIMPLIFY).setOnPreferenceChangeListener(numberValidationListener);
+        findPreference(KEY_DEAD_RECKONING).setOnPreferenceChangeListener(numberValidationListener);
+        findPreference(KEY_BATCH).setOnPreferenceChangeListener(numberValidationListener);
+        findPreference(KEY_WINDOW).setOnPreferenceChangeListener(numberValidationListener);
 
         alarmManager = (AlarmManager) getActivity().getSystemService(Context.ALARM_SERVICE);
         alarmIntent = PendingIntent.getBroadcast(getActivity(), 0, new Intent(getActivity(), AutostartReceiver.class), 0);
@@ -170,7 +191,7 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
 
     @Override
     public void onDisplayPreferenceDialog(Preference preference) {
-        if (Arrays.asList(KEY_INTERVAL, KEY_DISTANCE, KEY_ANGLE).contains(preference.getKey())) {
+        if (Arrays.asList(KEY_INTERVAL, KEY_DISTANCE, KEY_ANGLE, KEY_FILTER_ACCURACY, KEY_SIMPLIFY, KEY_DEAD_RECKONING, KEY_BATCH, KEY_WINDOW).contains(preference.getKey())) {
             final EditTextPreferenceDialogFragmentCompat f = NumericEditTextPreferenceDialogFragment.newInstance(preference.getKey());
             f.setTargetFragment(this, 0);
             f.show(getFragmentManager(), "androidx.preference.PreferenceFragment.DIALOG");
@@ -207,20 +228,6 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
         sharedPreferences.unregisterOnSharedPreferenceChangeListener(this);
     }
 
-    private void setPreferencesEnabled(boolean enabled) {
-        findPreference(KEY_DEVICE).setEnabled(enabled);
-        findPreference(KEY_URL).setEnabled(enabled);
-        findPreference(KEY_INTERVAL).setEnabled(enabled);
-        findPreference(KEY_INTERVAL_CHARGING).setEnabled(enabled);
-        findPreference(KEY_DISTANCE).setEnabled(enabled);
-        findPreference(KEY_ANGLE).setEnabled(enabled);
-        findPreference(KEY_DISTANCE_ANGLE_CHARGING).setEnabled(enabled);
-        findPreference(KEY_POWER_AS_IGNITION).setEnabled(enabled);
-        findPreference(KEY_TEMPERATURE_MONITORING).setEnabled(enabled);
-        findPreference(KEY_ACCURACY).setEnabled(enabled);
-        findPreference(KEY_BUFFER).setEnabled(enabled);
-    }
-
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         if (key.equals(KEY_STATUS)) {
@@ -280,7 +287,6 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
         }
 
         if (permission) {
-            setPreferencesEnabled(false);
             ContextCompat.startForegroundService(getContext(), new Intent(getActivity(), TrackingService.class));
             alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP,
                     ALARM_MANAGER_INTERVAL, ALARM_MANAGER_INTERVAL, alarmIntent);
@@ -294,7 +300,6 @@ public class MainFragment extends PreferenceFragmentCompat implements OnSharedPr
     private void stopTrackingService() {
         alarmManager.cancel(alarmIntent);
         getActivity().stopService(new Intent(getActivity(), TrackingService.class));
-        setPreferencesEnabled(true);
     }
 
     @Override
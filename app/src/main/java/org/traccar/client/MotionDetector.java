@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+/**
+ * Reports transitions between moving and stationary. Detectors start in the moving state and
+ * only call the listener when the state changes.
+ */
+public interface MotionDetector {
+
+    interface MotionListener {
+        void onMotionChanged(boolean moving);
+    }
+
+    void start(MotionListener listener);
+
+    void stop();
+
+}
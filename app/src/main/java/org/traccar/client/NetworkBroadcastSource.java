@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+/**
+ * Connectivity broadcast fallback for devices without default network callbacks. Validation is
+ * not reported, so a connected network is assumed to be validated.
+ */
+public class NetworkBroadcastSource extends BroadcastReceiver implements ConnectivitySource {
+
+    private final Context context;
+    private final ConnectivityManager connectivityManager;
+
+    private Listener listener;
+
+    public NetworkBroadcastSource(Context context) {
+        this.context = context;
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Override
+    public NetworkState getState() {
+        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+        if (activeNetwork == null || !activeNetwork.isConnectedOrConnecting()) {
+            return NetworkState.OFFLINE;
+        }
+        NetworkState.Transport transport;
+        switch (activeNetwork.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+                transport = NetworkState.Transport.WIFI;
+                break;
+            case ConnectivityManager.TYPE_MOBILE:
+                transport = NetworkState.Transport.CELLULAR;
+                break;
+            case ConnectivityManager.TYPE_ETHERNET:
+                transport = NetworkState.Transport.ETHERNET;
+                break;
+            default:
+                transport = NetworkState.Transport.OTHER;
+                break;
+        }
+        return new NetworkState(
+                true, activeNetwork.isConnected(), connectivityManager.isActiveNetworkMetered(), transport);
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        context.registerReceiver(this, filter);
+    }
+
+    @Override
+    public void stop() {
+        context.unregisterReceiver(this);
+        listener = null;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (ConnectivityManager.CONNECTIVITY_ACTION.equals(intent.getAction()) && listener != null) {
+            listener.onStateChanged(getState());
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Tracks the default network with a {@link ConnectivityManager.NetworkCallback}, which unlike the
+ * connectivity broadcast reports whether the network has been validated.
+ */
+@TargetApi(Build.VERSION_CODES.N)
+public class NetworkCallbackSource extends ConnectivityManager.NetworkCallback implements ConnectivitySource {
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private Listener listener;
+    private Network network; // current default network, only used on the callback thread
+
+    public NetworkCallbackSource(Context context) {
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    static NetworkState createState(NetworkCapabilities capabilities) {
+        if (capabilities == null || !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) {
+            return NetworkState.OFFLINE;
+        }
+        NetworkState.Transport transport;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transport = NetworkState.Transport.WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transport = NetworkState.Transport.CELLULAR;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transport = NetworkState.Transport.ETHERNET;
+        } else {
+            transport = NetworkState.Transport.OTHER;
+        }
+        return new NetworkState(
+                true,
+                capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+                !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                transport);
+    }
+
+    @Override
+    public NetworkState getState() {
+        Network network = connectivityManager.getActiveNetwork();
+        if (network == null) {
+            return NetworkState.OFFLINE;
+        }
+        return createState(connectivityManager.getNetworkCapabilities(network));
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        connectivityManager.registerDefaultNetworkCallback(this);
+    }
+
+    @Override
+    public void stop() {
+        connectivityManager.unregisterNetworkCallback(this);
+        handler.removeCallbacksAndMessages(null);
+        listener = null;
+        network = null;
+    }
+
+    private void post(final NetworkState state) {
+        // callbacks arrive on a connectivity thread
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (listener != null) {
+                    listener.onStateChanged(state);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+        this.network = network;
+        post(createState(capabilities));
+    }
+
+    @Override
+    public void onLost(Network network) {
+        // a network that was replaced as the default can be lost after the new one is reported
+        if (network.equals(this.network)) {
+            this.network = null;
+            post(NetworkState.OFFLINE);
+        }
+    }
+
+}
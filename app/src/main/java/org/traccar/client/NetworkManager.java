@@ -15,53 +15,59 @@
  */
 package org.traccar.client;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
+import android.os.Build;
 import android.util.Log;
 
-public class NetworkManager extends BroadcastReceiver {
+public class NetworkManager implements ConnectivitySource.Listener {
 
     private static final String TAG = NetworkManager.class.getSimpleName();
 
-    private Context context;
     private NetworkHandler handler;
-    private ConnectivityManager connectivityManager;
+    private ConnectivitySource source;
+    private NetworkState state;
 
     public NetworkManager(Context context, NetworkHandler handler) {
-        this.context = context;
+        this(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? new NetworkCallbackSource(context) : new NetworkBroadcastSource(context), handler);
+    }
+
+    public NetworkManager(ConnectivitySource source, NetworkHandler handler) {
+        this.source = source;
         this.handler = handler;
-        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
 
     public interface NetworkHandler {
-        void onNetworkUpdate(boolean isOnline);
+        void onNetworkUpdate(NetworkState state);
+    }
+
+    public NetworkState getState() {
+        if (state == null) {
+            state = source.getState();
+        }
+        return state;
     }
 
     public boolean isOnline() {
-        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+        return getState().isOnline();
     }
 
     public void start() {
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
-        context.registerReceiver(this, filter);
+        source.start(this);
     }
 
     public void stop() {
-        context.unregisterReceiver(this);
+        source.stop();
     }
 
     @Override
-    public void onReceive(Context context, Intent intent) {
-        if (intent.getAction().equals(ConnectivityManager.CONNECTIVITY_ACTION) && handler != null) {
-            boolean isOnline = isOnline();
-            Log.i(TAG, "network " + (isOnline ? "on" : "off"));
-            handler.onNetworkUpdate(isOnline);
+    public void onStateChanged(NetworkState state) {
+        if (!state.equals(this.state)) {
+            this.state = state;
+            Log.i(TAG, "network " + state);
+            if (handler != null) {
+                handler.onNetworkUpdate(state);
+            }
         }
     }
 
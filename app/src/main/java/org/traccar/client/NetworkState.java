@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+/**
+ * Immutable snapshot of the default network.
+ */
+public class NetworkState {
+
+    public enum Transport {
+        NONE,
+        WIFI,
+        CELLULAR,
+        ETHERNET,
+        OTHER
+    }
+
+    public static final NetworkState OFFLINE = new NetworkState(false, false, false, Transport.NONE);
+
+    private final boolean online;
+    private final boolean validated;
+    private final boolean metered;
+    private final Transport transport;
+
+    public NetworkState(boolean online, boolean validated, boolean metered, Transport transport) {
+        this.online = online;
+        this.validated = validated;
+        this.metered = metered;
+        this.transport = transport;
+    }
+
+    /**
+     * Connected to a network that provides internet access, which might not be reachable yet.
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * Internet access has been verified by the system.
+     */
+    public boolean isValidated() {
+        return validated;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NetworkState)) {
+            return false;
+        }
+        NetworkState state = (NetworkState) o;
+        return online == state.online && validated == state.validated
+                && metered == state.metered && transport == state.transport;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = online ? 1 : 0;
+        result = 31 * result + (validated ? 1 : 0);
+        result = 31 * result + (metered ? 1 : 0);
+        result = 31 * result + transport.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return transport + (online ? " online" : " offline") + (validated ? " validated" : "")
+                + (metered ? " metered" : "");
+    }
+
+}
@@ -179,4 +179,14 @@ public class Position {
         this.mock = mock;
     }
 
+    private String alarm;
+
+    public String getAlarm() {
+        return alarm;
+    }
+
+    public void setAlarm(String alarm) {
+        this.alarm = alarm;
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+/**
+ * Single stage of a {@link PositionFilterChain}. A stage either accepts a location, drops it, or
+ * passes the decision on to the next stage.
+ */
+public abstract class PositionFilter {
+
+    public enum Result {
+        ACCEPT,
+        DROP,
+        PASS
+    }
+
+    private final String name;
+
+    private int seen;
+    private int accepted;
+    private int dropped;
+
+    protected PositionFilter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSeen() {
+        return seen;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public int getDropped() {
+        return dropped;
+    }
+
+    public final Result filter(Location location, Location lastLocation) {
+        seen += 1;
+        Result result = test(location, lastLocation);
+        if (result == Result.ACCEPT) {
+            accepted += 1;
+        } else if (result == Result.DROP) {
+            dropped += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Decides on a location. The last accepted location is null for the first location.
+     */
+    protected abstract Result test(Location location, Location lastLocation);
+
+    @Override
+    public String toString() {
+        return name + " " + seen + "/" + accepted + "/" + dropped;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of filter stages. Every location a stage accepts is reported, and so is the first
+ * location unless a stage drops it. Any other location no stage accepts is dropped. Gates that drop
+ * locations therefore go before the stages that accept them.
+ */
+public class PositionFilterChain {
+
+    private final List<PositionFilter> filters = new ArrayList<>();
+
+    private int unmatched;
+
+    public PositionFilterChain add(PositionFilter filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    public List<PositionFilter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Number of locations dropped because no stage accepted them.
+     */
+    public int getUnmatched() {
+        return unmatched;
+    }
+
+    public boolean accept(Location location, Location lastLocation) {
+        for (PositionFilter filter : filters) {
+            switch (filter.filter(location, lastLocation)) {
+                case ACCEPT:
+                    return true;
+                case DROP:
+                    return false;
+                default:
+                    break;
+            }
+        }
+        if (lastLocation == null) {
+            return true;
+        }
+        unmatched += 1;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (PositionFilter filter : filters) {
+            builder.append(filter).append(' ');
+        }
+        return builder.append("unmatched ").append(unmatched).toString();
+    }
+
+}
@@ -20,37 +20,43 @@
 package org.traccar.client;
 
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.location.Location;
-import android.os.BatteryManager;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
-public abstract class PositionProvider implements ChargingManager.ChargingHandler {
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public abstract class PositionProvider
+        implements DeviceStateMonitor.ChargingHandler, MotionDetector.MotionListener {
 
     private static final String TAG = PositionProvider.class.getSimpleName();
 
     protected static final int MINIMUM_INTERVAL = 1000;
+    protected static final long BATCH_WAIT = 5 * 60 * 1000;
+    protected static final long STATIONARY_INTERVAL = 15 * 60 * 1000;
 
     public interface PositionListener {
         void onPositionUpdate(Position position);
+        void onPositionBatch(List<Position> positions);
         void onPositionError(Throwable error);
     }
 
     protected final PositionListener listener;
 
-    protected ChargingManager chargingManager;
-    protected TemperatureManager temperatureManager;
+    protected DeviceStateMonitor deviceStateMonitor;
+    protected MotionDetector motionDetector;
 
     protected final Context context;
-    protected SharedPreferences preferences;
+    protected TrackingConfig config;
 
     protected String deviceId;
     protected long interval;
     protected double distance;
     protected double angle;
+    protected double accuracy;
+    protected double deviation;
 
     protected long interval_battery;
     protected long interval_charging;
@@ -58,82 +64,275 @@ public abstract class PositionProvider implements ChargingManager.ChargingHandle
     protected boolean power_as_ignition;
     protected boolean temperatureMonitoring;
     protected boolean distance_angle_allowed;
+    protected boolean batched;
+    protected boolean stationary;
 
     protected Location lastLocation;
 
+    private final AccuracyFilter accuracyFilter = new AccuracyFilter(0);
+    private final KalmanFilter kalmanFilter = new KalmanFilter(0, false);
+    private final IntervalFilter intervalFilter = new IntervalFilter(0);
+    private final DeadReckoningFilter deadReckoningFilter = new DeadReckoningFilter(0, kalmanFilter);
+    private final DistanceFilter distanceFilter = new DistanceFilter(0);
+    private final HeadingFilter headingFilter = new HeadingFilter(0);
+    protected final PositionFilterChain filterChain = new PositionFilterChain();
+    protected TrajectorySimplifier simplifier;
+
+    private int delivered;
+    private int accepted;
+    private boolean running;
+
     public PositionProvider(Context context, PositionListener listener) {
         this.context = context;
         this.listener = listener;
 
-        preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        filterChain
+                .add(new DuplicateFilter())
+                .add(accuracyFilter)
+                .add(kalmanFilter)
+                .add(intervalFilter)
+                .add(deadReckoningFilter)
+                .add(distanceFilter)
+                .add(headingFilter);
 
-        deviceId = preferences.getString(MainFragment.KEY_DEVICE, "undefined");
-        interval_battery = Long.parseLong(preferences.getString(MainFragment.KEY_INTERVAL, "600")) * 1000;
-        interval_charging = Long.parseLong(preferences.getString(MainFragment.KEY_INTERVAL_CHARGING, "60")) * 1000;
-        distance = Integer.parseInt(preferences.getString(MainFragment.KEY_DISTANCE, "0"));
-        angle = Integer.parseInt(preferences.getString(MainFragment.KEY_ANGLE, "0"));
-        distance_angle_charging = preferences.getBoolean(MainFragment.KEY_DISTANCE_ANGLE_CHARGING, false);
-        power_as_ignition = preferences.getBoolean(MainFragment.KEY_POWER_AS_IGNITION, false);
-        temperatureMonitoring = preferences.getBoolean(MainFragment.KEY_TEMPERATURE_MONITORING, false);
+        readConfig(new TrackingConfig(context, PreferenceManager.getDefaultSharedPreferences(context)));
+        createMonitors();
+    }
 
-        if (interval_charging > 0 || distance_angle_charging || power_as_ignition) {
-            chargingManager = new ChargingManager(context, this);
-        }
-        if(temperatureMonitoring) {
-            temperatureManager = new TemperatureManager(context);
+    private void readConfig(TrackingConfig config) {
+        this.config = config;
+
+        deviceId = config.getDeviceId();
+        interval_battery = config.getInterval();
+        interval_charging = config.getIntervalCharging();
+        distance = config.getDistance();
+        angle = config.getAngle();
+        accuracy = config.getFilterAccuracy();
+        deviation = config.getDeadReckoning();
+        distance_angle_charging = config.getDistanceAngleCharging();
+        power_as_ignition = config.getPowerAsIgnition();
+        temperatureMonitoring = config.getTemperatureMonitoring();
+        batched = config.getBatched();
+
+        accuracyFilter.setAccuracy(accuracy);
+        kalmanFilter.setMaxSpeed(config.getOutlier() ? KalmanFilter.MAX_SPEED : 0);
+        kalmanFilter.setSmoothing(config.getSmoothing());
+
+        double simplify = config.getSimplify();
+        if (simplifier != null ? simplifier.getMaxError() != simplify : simplify > 0) {
+            if (simplifier != null) {
+                deliver(simplifier.flush());
+            }
+            simplifier = simplify > 0 ? new TrajectorySimplifier(simplify, interval_battery) : null;
         }
     }
 
+    private void createMonitors() {
+        boolean chargingAware = interval_charging > 0 || distance_angle_charging || power_as_ignition;
+        deviceStateMonitor = new DeviceStateMonitor(context, chargingAware ? this : null, temperatureMonitoring);
+        motionDetector = config.getMotion() ? new SensorMotionDetector(context) : null;
+    }
+
+    /**
+     * Applies a new configuration snapshot. Filter settings take effect with the next location and
+     * location requests are only renewed if their parameters changed. Settings behind the platform
+     * subscriptions restart the updates, like a charging change does.
+     */
+    public void setConfig(TrackingConfig config) {
+        boolean recreate = config.isProviderChanged(this.config);
+        boolean restart = running && recreate;
+        if (restart) {
+            stopUpdates();
+        }
+        long requestInterval = getRequestInterval();
+        float requestDistance = getRequestDistance();
+        readConfig(config);
+        if (recreate) {
+            createMonitors();
+        }
+        if (restart) {
+            startUpdates();
+        } else if (running) {
+            updateChargingVariables(deviceStateMonitor.getState().isCharging());
+            if (getRequestInterval() != requestInterval || getRequestDistance() != requestDistance) {
+                restartLocationUpdates();
+            }
+        }
+    }
 
     protected void setupChargingVariables(boolean isCharging) {
-        distance_angle_allowed = distance_angle_charging ? isCharging : true;
-        interval = interval_charging > 0 && isCharging ? interval_charging : interval_battery;
+        updateChargingVariables(isCharging);
         if (power_as_ignition) {
             lastLocation = null; // Clear lastLocation to send update ASAP
         }
     }
 
+    private void updateChargingVariables(boolean isCharging) {
+        distance_angle_allowed = distance_angle_charging ? isCharging : true;
+        interval = interval_charging > 0 && isCharging ? interval_charging : interval_battery;
+        intervalFilter.setInterval(interval);
+        if (simplifier != null) {
+            simplifier.setMaxHold(interval);
+        }
+        deadReckoningFilter.setDeviation(distance_angle_allowed ? deviation : 0);
+        distanceFilter.setDistance(distance_angle_allowed ? distance : 0);
+        headingFilter.setAngle(distance_angle_allowed ? angle : 0);
+    }
+
+    protected void startMonitoring() {
+        running = true;
+        deviceStateMonitor.start();
+        if (motionDetector != null) {
+            stationary = false;
+            motionDetector.start(this);
+        }
+    }
+
+    protected void stopMonitoring() {
+        running = false;
+        deviceStateMonitor.stop();
+        if (motionDetector != null) {
+            motionDetector.stop();
+        }
+        if (simplifier != null) {
+            deliver(simplifier.flush());
+        }
+        Log.i(TAG, "filters (seen/accepted/dropped) " + filterChain);
+    }
+
+    /**
+     * Re-requests location updates with the current request parameters.
+     */
+    protected abstract void restartLocationUpdates();
+
+    @Override
+    public void onMotionChanged(boolean moving) {
+        if (!running) {
+            return; // queued sensor events must not request updates on a stopped provider
+        }
+        stationary = !moving;
+        StatusActivity.addMessage(context.getString(
+                moving ? R.string.status_motion_moving : R.string.status_motion_stationary));
+        restartLocationUpdates();
+    }
+
+    /**
+     * Platform request interval. Distance, angle and dead reckoning need frequent fixes, otherwise
+     * the platform only has to report at the tracking interval. While stationary only heartbeat
+     * positions are requested, at most every {@link #STATIONARY_INTERVAL}.
+     */
+    protected long getRequestInterval() {
+        if (stationary) {
+            return Math.max(interval, STATIONARY_INTERVAL);
+        }
+        return distance_angle_allowed && (distance > 0 || angle > 0 || deviation > 0) ? MINIMUM_INTERVAL : interval;
+    }
+
+    /**
+     * Platform request minimum displacement. Angle filtering and dead reckoning have to see every
+     * fix, so distance is only pushed down to the platform when both are off. Distance filtered updates stop
+     * while the device is stationary, so providers also request updates at the tracking interval
+     * when this is positive.
+     */
+    protected float getRequestDistance() {
+        return !stationary && distance_angle_allowed && distance > 0 && angle <= 0 && deviation <= 0
+                ? (float) distance : 0;
+    }
+
+    /**
+     * Maximum delay for batched delivery. Platforms only batch when the wait covers at least two
+     * request intervals.
+     */
+    protected long getBatchWait(long requestInterval) {
+        return Math.max(BATCH_WAIT, 2 * requestInterval);
+    }
+
+    public int getDelivered() {
+        return delivered;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Filter stages between the platform and the listener. Stages can be added before
+     * {@link #startUpdates()}.
+     */
+    public PositionFilterChain getFilterChain() {
+        return filterChain;
+    }
+
     public abstract void startUpdates();
 
     public abstract void stopUpdates();
 
     public abstract void requestSingleLocation();
 
-    protected void processLocation(Location location) {
-        if (location != null && (lastLocation == null
-                || location.getTime() - lastLocation.getTime() >= interval
-                || distance_angle_allowed && distance > 0 && location.distanceTo(lastLocation) >= distance
-                || distance_angle_allowed && angle > 0 && Math.abs(location.getBearing() - lastLocation.getBearing()) >= angle)) {
-            Log.i(TAG, "location new");
+    private Position acceptLocation(Location location) {
+        delivered += 1;
+        if (location != null && filterChain.accept(location, lastLocation)) {
+            accepted += 1;
+            Log.i(TAG, "location new (accepted:" + accepted + " delivered:" + delivered + ")");
             lastLocation = location;
-            listener.onPositionUpdate(new Position(deviceId, location, getBatteryLevel(context), getIgnitionStatus(), getTemperature()));
+            DeviceState state = deviceStateMonitor.getState();
+            Location reported = kalmanFilter.smooth(location);
+            deadReckoningFilter.setReported(reported);
+            return new Position(deviceId, reported,
+                    state.getBatteryLevel(), getIgnitionStatus(state), getTemperature(state));
         } else {
             Log.i(TAG, location != null ? "location ignored" : "location nil");
+            return null;
         }
     }
 
-    protected static double getBatteryLevel(Context context) {
-        Intent batteryIntent = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
-        if (batteryIntent != null) {
-            int level = batteryIntent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
-            int scale = batteryIntent.getIntExtra(BatteryManager.EXTRA_SCALE, 1);
-            return (level * 100.0) / scale;
+    protected void processLocation(Location location) {
+        processLocations(Collections.singletonList(location));
+    }
+
+    /**
+     * Filters fixes delivered together, oldest first, and passes the accepted ones on as a batch.
+     * With simplification enabled, positions are only passed on once the simplifier reports them.
+     */
+    protected void processLocations(List<Location> locations) {
+        List<Position> positions = new ArrayList<>();
+        for (Location location : locations) {
+            Position position = acceptLocation(location);
+            if (position != null) {
+                if (simplifier != null) {
+                    positions.addAll(simplifier.add(position));
+                } else {
+                    positions.add(position);
+                }
+            }
+        }
+        deliver(positions);
+    }
+
+    private void deliver(List<Position> positions) {
+        if (positions.size() == 1) {
+            listener.onPositionUpdate(positions.get(0));
+        } else if (!positions.isEmpty()) {
+            listener.onPositionBatch(positions);
         }
-        return 0;
     }
 
-    private int getIgnitionStatus() {
+    protected double getBatteryLevel() {
+        return deviceStateMonitor.getState().getBatteryLevel();
+    }
+
+    private int getIgnitionStatus(DeviceState state) {
         if (!power_as_ignition) {
             return -1;
         }
-        return chargingManager.isCharging() ? 1 : 0;
+        return state.isCharging() ? 1 : 0;
     }
 
-    private float getTemperature() {
+    private float getTemperature(DeviceState state) {
         if (!temperatureMonitoring) {
             return Float.NaN;
         }
-        return temperatureManager.getLastTemperature();
+        return state.getTemperature();
     }
 
 }
@@ -15,42 +15,191 @@
  */
 package org.traccar.client;
 
-import android.net.Uri;
+import java.util.List;
 
+/**
+ * Formats positions using the OsmAnd protocol. The server URL is parsed once into a template
+ * and requests are written into a reused buffer, so an instance must only be used from one
+ * thread. Output is identical to appending the parameters with {@code Uri.Builder}.
+ */
 public class ProtocolFormatter {
 
+    public static final int PRECISION_FULL = -1;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final long[] POWERS = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L };
+
+    private final String prefix;
+    private final String suffix;
+    private final int precision;
+
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public ProtocolFormatter(String url) {
+        this(url, PRECISION_FULL);
+    }
+
+    public ProtocolFormatter(String url, int precision) {
+        int fragmentIndex = url.indexOf('#');
+        String base = fragmentIndex >= 0 ? url.substring(0, fragmentIndex) : url;
+        suffix = fragmentIndex >= 0 ? url.substring(fragmentIndex) : "";
+        int queryIndex = base.indexOf('?');
+        if (queryIndex < 0) {
+            prefix = base + '?';
+        } else if (queryIndex == base.length() - 1) {
+            prefix = base;
+        } else {
+            prefix = base + '&';
+        }
+        this.precision = Math.min(precision, POWERS.length - 1);
+    }
+
     public static String formatRequest(String url, Position position) {
         return formatRequest(url, position, null);
     }
 
     public static String formatRequest(String url, Position position, String alarm) {
-        Uri serverUrl = Uri.parse(url);
-        Uri.Builder builder = serverUrl.buildUpon()
-                .appendQueryParameter("id", position.getDeviceId())
-                .appendQueryParameter("timestamp", String.valueOf(position.getTime().getTime() / 1000))
-                .appendQueryParameter("lat", String.valueOf(position.getLatitude()))
-                .appendQueryParameter("lon", String.valueOf(position.getLongitude()))
-                .appendQueryParameter("speed", String.valueOf(position.getSpeed()))
-                .appendQueryParameter("bearing", String.valueOf(position.getCourse()))
-                .appendQueryParameter("altitude", String.valueOf(position.getAltitude()))
-                .appendQueryParameter("accuracy", String.valueOf(position.getAccuracy()))
-                .appendQueryParameter("batt", String.valueOf(position.getBattery()));
+        return new ProtocolFormatter(url).format(position, alarm);
+    }
+
+    public String format(Position position) {
+        return format(position, null);
+    }
+
+    public String format(Position position, String alarm) {
+        buffer.setLength(0);
+        buffer.append(prefix);
+        appendParameters(position, alarm);
+        buffer.append(suffix);
+        return buffer.toString();
+    }
+
+    /**
+     * Formats positions as a batch request body, one query string per line. Positions that
+     * would push the body over the length limit are removed from the list, so that the caller
+     * knows exactly which positions were included. At least one position is always included.
+     * Only servers that decode every line accept this body, the stock OsmAnd decoder keeps a
+     * single position and still confirms the request.
+     */
+    public String formatBatch(List<Position> positions, int limit) {
+        buffer.setLength(0);
+        int count = 0;
+        for (Position position : positions) {
+            int length = buffer.length();
+            if (count > 0) {
+                buffer.append('\n');
+            }
+            appendParameters(position, null);
+            if (count > 0 && buffer.length() > limit) {
+                buffer.setLength(length);
+                break;
+            }
+            count += 1;
+        }
+        positions.subList(count, positions.size()).clear();
+        return buffer.toString();
+    }
+
+    private void appendParameters(Position position, String alarm) {
+        buffer.append("id=");
+        appendEncoded(position.getDeviceId());
+        buffer.append("&timestamp=").append(position.getTime().getTime() / 1000);
+        buffer.append("&lat=");
+        appendCoordinate(position.getLatitude());
+        buffer.append("&lon=");
+        appendCoordinate(position.getLongitude());
+        buffer.append("&speed=").append(position.getSpeed());
+        buffer.append("&bearing=").append(position.getCourse());
+        buffer.append("&altitude=").append(position.getAltitude());
+        buffer.append("&accuracy=").append(position.getAccuracy());
+        buffer.append("&batt=").append(position.getBattery());
         if (position.getIgnition() != -1) {
-            builder.appendQueryParameter("ignition", String.valueOf(position.getIgnition() == 1));
+            buffer.append("&ignition=").append(position.getIgnition() == 1);
         }
 
         if (!Float.isNaN(position.getTemperature())) {
-            builder.appendQueryParameter("deviceTemp", String.valueOf(position.getTemperature()));
+            buffer.append("&deviceTemp=").append(position.getTemperature());
         }
 
         if (position.getMock()) {
-            builder.appendQueryParameter("mock", String.valueOf(position.getMock()));
+            buffer.append("&mock=").append(position.getMock());
         }
 
         if (alarm != null) {
-            builder.appendQueryParameter("alarm", alarm);
+            buffer.append("&alarm=");
+            appendEncoded(alarm);
+        }
+    }
+
+    private void appendCoordinate(double value) {
+        if (precision < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+            buffer.append(value);
+            return;
+        }
+        long scale = POWERS[precision];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            buffer.append('-');
+        }
+        buffer.append(scaled / scale);
+        long fraction = scaled % scale;
+        if (fraction != 0) {
+            int digits = precision;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits -= 1;
+            }
+            buffer.append('.');
+            for (long limit = POWERS[digits - 1]; fraction < limit; limit /= 10) {
+                buffer.append('0');
+            }
+            buffer.append(fraction);
         }
+    }
+
+    private static boolean isAllowed(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || "_-!.~'()*".indexOf(c) >= 0;
+    }
+
+    private void appendEscaped(int b) {
+        buffer.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
 
-        return builder.build().toString();
+    // same escaping as Uri.encode, multi-byte characters are escaped as UTF-8
+    private void appendEncoded(String value) {
+        if (value == null) {
+            buffer.append("null");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isAllowed(c)) {
+                buffer.append(c);
+                continue;
+            }
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, value.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                codePoint = '?';
+            }
+            if (codePoint < 0x80) {
+                appendEscaped(codePoint);
+            } else if (codePoint < 0x800) {
+                appendEscaped(0xC0 | (codePoint >> 6));
+                appendEscaped(0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                appendEscaped(0xE0 | (codePoint >> 12));
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(0x80 | (codePoint & 0x3F));
+            } else {
+                appendEscaped(0xF0 | (codePoint >> 18));
+                appendEscaped(0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(0x80 | (codePoint & 0x3F));
+            }
+        }
     }
+
 }
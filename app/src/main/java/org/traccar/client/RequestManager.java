@@ -16,68 +16,101 @@
 package org.traccar.client;
 
 import android.os.AsyncTask;
-import android.util.Log;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.concurrent.Executor;
 
 public class RequestManager {
 
-    private static final int TIMEOUT = 15 * 1000;
+    private static final HttpTransport transport = new HttpTransport();
 
     public interface RequestHandler {
         void onComplete(boolean success);
     }
 
-    private static class RequestAsyncTask extends AsyncTask<String, Void, Boolean> {
+    public interface ResponseHandler {
+        void onComplete(HttpTransport.Response response);
+    }
+
+    private static class RequestAsyncTask extends AsyncTask<String, Void, HttpTransport.Response> {
 
-        private RequestHandler handler;
+        private HttpTransport transport;
+        private ResponseHandler handler;
 
-        public RequestAsyncTask(RequestHandler handler) {
+        public RequestAsyncTask(HttpTransport transport, ResponseHandler handler) {
+            this.transport = transport;
             this.handler = handler;
         }
 
         @Override
-        protected Boolean doInBackground(String... request) {
-            return sendRequest(request[0]);
+        protected HttpTransport.Response doInBackground(String... request) {
+            return transport.send(request[0], request.length > 1 ? request[1] : null);
         }
 
         @Override
-        protected void onPostExecute(Boolean result) {
+        protected void onPostExecute(HttpTransport.Response result) {
             handler.onComplete(result);
         }
     }
 
-    public static boolean sendRequest(String request) {
-        InputStream inputStream = null;
-        try {
-            URL url = new URL(request);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setReadTimeout(TIMEOUT);
-            connection.setConnectTimeout(TIMEOUT);
-            connection.setRequestMethod("POST");
-            connection.connect();
-            inputStream = connection.getInputStream();
-            while (inputStream.read() != -1);
-            return true;
-        } catch (IOException error) {
-            return false;
-        } finally {
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-            } catch (IOException secondError) {
-                Log.w(RequestManager.class.getSimpleName(), secondError);
-            }
+    private static class WarmUpAsyncTask extends AsyncTask<String, Void, HttpTransport.Response> {
+
+        private HttpTransport transport;
+        private ResponseHandler handler;
+
+        public WarmUpAsyncTask(HttpTransport transport, ResponseHandler handler) {
+            this.transport = transport;
+            this.handler = handler;
+        }
+
+        @Override
+        protected HttpTransport.Response doInBackground(String... request) {
+            return transport.warmUp(request[0]);
+        }
+
+        @Override
+        protected void onPostExecute(HttpTransport.Response result) {
+            handler.onComplete(result);
         }
     }
 
+    public static boolean sendRequest(String request) {
+        return sendRequest(request, null);
+    }
+
+    public static boolean sendRequest(String request, String body) {
+        return transport.send(request, body).isSuccess();
+    }
+
     public static void sendRequestAsync(String request, RequestHandler handler) {
-        RequestAsyncTask task = new RequestAsyncTask(handler);
-        task.execute(request);
+        sendRequestAsync(request, null, handler);
+    }
+
+    public static void sendRequestAsync(String request, String body, final RequestHandler handler) {
+        sendRequestAsync(transport, request, body, new ResponseHandler() {
+            @Override
+            public void onComplete(HttpTransport.Response response) {
+                handler.onComplete(response.isSuccess());
+            }
+        });
+    }
+
+    public static void sendRequestAsync(
+            HttpTransport transport, String request, String body, ResponseHandler handler) {
+        sendRequestAsync(AsyncTask.THREAD_POOL_EXECUTOR, transport, request, body, handler);
+    }
+
+    public static void sendRequestAsync(
+            Executor executor, HttpTransport transport, String request, String body, ResponseHandler handler) {
+        RequestAsyncTask task = new RequestAsyncTask(transport, handler);
+        task.executeOnExecutor(executor, request, body);
+    }
+
+    /**
+     * Handler receives null if the connection is still warm.
+     */
+    public static void warmUpAsync(HttpTransport transport, String url, ResponseHandler handler) {
+        WarmUpAsyncTask task = new WarmUpAsyncTask(transport, handler);
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, url);
     }
 
 }
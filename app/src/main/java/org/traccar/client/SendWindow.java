@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tracks buffered positions that have been sent but not yet deleted. Acknowledgements can arrive
+ * in any order, but positions are only released for deletion in id order, so the buffer never
+ * loses a position that the server has not confirmed.
+ */
+public class SendWindow {
+
+    private static class Entry {
+
+        private final List<Position> positions;
+        private boolean acknowledged;
+
+        Entry(List<Position> positions) {
+            this.positions = positions;
+        }
+
+    }
+
+    private final LinkedList<Entry> entries = new LinkedList<>();
+
+    private int capacity;
+    private long lastId;
+
+    public SendWindow(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    public int getAvailable() {
+        return Math.max(capacity - entries.size(), 0);
+    }
+
+    public boolean isFull() {
+        return entries.size() >= capacity;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void add(List<Position> positions) {
+        entries.add(new Entry(positions));
+        lastId = positions.get(positions.size() - 1).getId();
+    }
+
+    public List<Position> acknowledge(List<Position> positions) {
+        for (Entry entry : entries) {
+            if (entry.positions == positions) {
+                entry.acknowledged = true;
+                break;
+            }
+        }
+        List<Position> released = new ArrayList<>();
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.acknowledged) {
+                break;
+            }
+            released.addAll(entry.positions);
+            iterator.remove();
+        }
+        return released;
+    }
+
+    public void clear() {
+        entries.clear();
+        lastId = 0;
+    }
+
+}
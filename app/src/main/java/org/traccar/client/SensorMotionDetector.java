@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Detects motion with the accelerometer. The device is stationary once acceleration has stayed
+ * close to gravity for {@link #STATIONARY_DELAY}. While stationary the accelerometer is replaced
+ * by the significant motion sensor where available, which runs in the sensor hub and wakes the
+ * detector on movement.
+ */
+public class SensorMotionDetector implements MotionDetector, SensorEventListener {
+
+    private static final String TAG = SensorMotionDetector.class.getSimpleName();
+
+    public static final long STATIONARY_DELAY = 3 * 60 * 1000;
+    public static final float MOTION_THRESHOLD = 0.6f;
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private final Sensor significantMotion;
+
+    private MotionListener listener;
+    private TriggerEventListener triggerListener;
+    private boolean moving;
+    private long lastMotion;
+
+    public SensorMotionDetector(Context context) {
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        } else {
+            significantMotion = null;
+        }
+    }
+
+    @Override
+    public void start(MotionListener listener) {
+        this.listener = listener;
+        moving = true;
+        lastMotion = SystemClock.elapsedRealtime();
+        if (accelerometer != null) {
+            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+        }
+    }
+
+    @Override
+    public void stop() {
+        sensorManager.unregisterListener(this);
+        if (triggerListener != null) {
+            cancelTrigger();
+        }
+        listener = null;
+    }
+
+    private void update(boolean moving) {
+        if (this.moving != moving) {
+            this.moving = moving;
+            Log.i(TAG, moving ? "moving" : "stationary");
+            if (listener != null) {
+                listener.onMotionChanged(moving);
+            }
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        double magnitude = Math.sqrt(x * x + y * y + z * z);
+        long now = SystemClock.elapsedRealtime();
+        if (Math.abs(magnitude - SensorManager.GRAVITY_EARTH) > MOTION_THRESHOLD) {
+            lastMotion = now;
+            update(true);
+        } else if (moving && now - lastMotion >= STATIONARY_DELAY) {
+            update(false);
+            if (significantMotion != null) {
+                sensorManager.unregisterListener(this);
+                requestTrigger();
+            }
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void requestTrigger() {
+        triggerListener = new TriggerEventListener() {
+            @Override
+            public void onTrigger(TriggerEvent event) {
+                // trigger sensors disarm after firing
+                triggerListener = null;
+                lastMotion = SystemClock.elapsedRealtime();
+                sensorManager.registerListener(
+                        SensorMotionDetector.this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+                update(true);
+            }
+        };
+        sensorManager.requestTriggerSensor(triggerListener, significantMotion);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void cancelTrigger() {
+        sensorManager.cancelTriggerSensor(triggerListener, significantMotion);
+        triggerListener = null;
+    }
+
+}
@@ -16,7 +16,6 @@
 package org.traccar.client;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
@@ -33,6 +32,8 @@ import androidx.core.content.pm.ShortcutInfoCompat;
 import androidx.core.content.pm.ShortcutManagerCompat;
 import androidx.core.graphics.drawable.IconCompat;
 
+import java.util.List;
+
 public class ShortcutActivity extends AppCompatActivity {
 
     public static final String EXTRA_ACTION = "action";
@@ -103,11 +104,7 @@ public class ShortcutActivity extends AppCompatActivity {
         PositionProviderFactory.create(this, new PositionProvider.PositionListener() {
             @Override
             public void onPositionUpdate(Position position) {
-                SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(ShortcutActivity.this);
-                String request = ProtocolFormatter.formatRequest(
-                        preferences.getString(MainFragment.KEY_URL, null), position, ALARM_SOS);
-
-                RequestManager.sendRequestAsync(request, new RequestManager.RequestHandler() {
+                AlarmQueue.getInstance(ShortcutActivity.this).send(position, ALARM_SOS, new AlarmQueue.AlarmHandler() {
                     @Override
                     public void onComplete(boolean success) {
                         if (success) {
@@ -119,6 +116,11 @@ public class ShortcutActivity extends AppCompatActivity {
                 });
             }
 
+            @Override
+            public void onPositionBatch(List<Position> positions) {
+                onPositionUpdate(positions.get(positions.size() - 1));
+            }
+
             @Override
             public void onPositionError(Throwable error) {
                 Toast.makeText(ShortcutActivity.this, error.getMessage(), Toast.LENGTH_LONG).show();
@@ -28,6 +28,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
+import android.widget.TextView;
 
 public class StatusActivity extends AppCompatActivity {
 
@@ -35,6 +36,9 @@ public class StatusActivity extends AppCompatActivity {
 
     private static final LinkedList<String> messages = new LinkedList<>();
     private static final Set<ArrayAdapter<String>> adapters = new HashSet<>();
+    private static final Set<TextView> summaryViews = new HashSet<>();
+
+    private static String summary;
 
     private static void notifyAdapters() {
         for (ArrayAdapter<String> adapter : adapters) {
@@ -52,12 +56,20 @@ public class StatusActivity extends AppCompatActivity {
         notifyAdapters();
     }
 
+    public static void setSummary(String value) {
+        summary = value;
+        for (TextView summaryView : summaryViews) {
+            summaryView.setText(summary);
+        }
+    }
+
     public static void clearMessages() {
         messages.clear();
         notifyAdapters();
     }
 
     private ArrayAdapter<String> adapter;
+    private TextView summaryView;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -65,13 +77,18 @@ public class StatusActivity extends AppCompatActivity {
         setContentView(R.layout.list);
         adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, android.R.id.text1, messages);
         ListView listView = findViewById(android.R.id.list);
+        summaryView = (TextView) getLayoutInflater().inflate(android.R.layout.simple_list_item_1, listView, false);
+        summaryView.setText(summary);
+        listView.addHeaderView(summaryView, null, false);
         listView.setAdapter(adapter);
         adapters.add(adapter);
+        summaryViews.add(summaryView);
     }
 
     @Override
     protected void onDestroy() {
         adapters.remove(adapter);
+        summaryViews.remove(summaryView);
         super.onDestroy();
     }
 
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Immutable snapshot of the tracking preferences. A new snapshot is read whenever a preference
+ * changes and replaces the previous one as a whole, so components never see a partially applied
+ * change. Each component compares the snapshots and applies only the settings it depends on.
+ */
+public class TrackingConfig {
+
+    private final String deviceId;
+    private final String url;
+    private final long interval;
+    private final long intervalCharging;
+    private final double distance;
+    private final double angle;
+    private final boolean distanceAngleCharging;
+    private final boolean powerAsIgnition;
+    private final boolean temperatureMonitoring;
+    private final String accuracy;
+    private final double filterAccuracy;
+    private final double simplify;
+    private final double deadReckoning;
+    private final boolean outlier;
+    private final boolean smoothing;
+    private final boolean batched;
+    private final boolean motion;
+    private final boolean buffer;
+    private final boolean serverBatch;
+    private final int batch;
+    private final int window;
+    private final int precision;
+    private final boolean compression;
+    private final boolean live;
+    private final boolean adaptive;
+    private final boolean unmetered;
+    private final boolean validated;
+
+    public TrackingConfig(Context context, SharedPreferences preferences) {
+        deviceId = preferences.getString(MainFragment.KEY_DEVICE, "undefined");
+        url = preferences.getString(MainFragment.KEY_URL, context.getString(R.string.settings_url_default_value));
+        interval = Long.parseLong(preferences.getString(MainFragment.KEY_INTERVAL, "600")) * 1000;
+        intervalCharging = Long.parseLong(preferences.getString(MainFragment.KEY_INTERVAL_CHARGING, "60")) * 1000;
+        distance = Integer.parseInt(preferences.getString(MainFragment.KEY_DISTANCE, "0"));
+        angle = Integer.parseInt(preferences.getString(MainFragment.KEY_ANGLE, "0"));
+        distanceAngleCharging = preferences.getBoolean(MainFragment.KEY_DISTANCE_ANGLE_CHARGING, false);
+        powerAsIgnition = preferences.getBoolean(MainFragment.KEY_POWER_AS_IGNITION, false);
+        temperatureMonitoring = preferences.getBoolean(MainFragment.KEY_TEMPERATURE_MONITORING, false);
+        accuracy = preferences.getString(MainFragment.KEY_ACCURACY, "medium");
+        filterAccuracy = Integer.parseInt(preferences.getString(MainFragment.KEY_FILTER_ACCURACY, "0"));
+        simplify = Integer.parseInt(preferences.getString(MainFragment.KEY_SIMPLIFY, "0"));
+        deadReckoning = Integer.parseInt(preferences.getString(MainFragment.KEY_DEAD_RECKONING, "0"));
+        outlier = preferences.getBoolean(MainFragment.KEY_OUTLIER, false);
+        smoothing = preferences.getBoolean(MainFragment.KEY_SMOOTHING, false);
+        batched = preferences.getBoolean(MainFragment.KEY_BATCHED, false);
+        motion = preferences.getBoolean(MainFragment.KEY_MOTION, false);
+        buffer = preferences.getBoolean(MainFragment.KEY_BUFFER, true);
+        serverBatch = preferences.getBoolean(MainFragment.KEY_SERVER_BATCH, false);
+        batch = serverBatch ? Integer.parseInt(preferences.getString(MainFragment.KEY_BATCH, "1")) : 1;
+        window = Integer.parseInt(preferences.getString(MainFragment.KEY_WINDOW, "1"));
+        precision = Integer.parseInt(preferences.getString(
+                MainFragment.KEY_PRECISION, String.valueOf(ProtocolFormatter.PRECISION_FULL)));
+        compression = preferences.getBoolean(MainFragment.KEY_COMPRESSION, false);
+        live = preferences.getBoolean(MainFragment.KEY_LIVE, false);
+        adaptive = preferences.getBoolean(MainFragment.KEY_ADAPTIVE, false);
+        unmetered = preferences.getBoolean(MainFragment.KEY_UNMETERED, false);
+        validated = preferences.getBoolean(MainFragment.KEY_VALIDATED, false);
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Tracking interval on battery in milliseconds.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Tracking interval while charging in milliseconds, zero if not used.
+     */
+    public long getIntervalCharging() {
+        return intervalCharging;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public boolean getDistanceAngleCharging() {
+        return distanceAngleCharging;
+    }
+
+    public boolean getPowerAsIgnition() {
+        return powerAsIgnition;
+    }
+
+    public boolean getTemperatureMonitoring() {
+        return temperatureMonitoring;
+    }
+
+    /**
+     * Location accuracy level, one of "high", "medium" or "low".
+     */
+    public String getAccuracy() {
+        return accuracy;
+    }
+
+    public double getFilterAccuracy() {
+        return filterAccuracy;
+    }
+
+    public double getSimplify() {
+        return simplify;
+    }
+
+    public double getDeadReckoning() {
+        return deadReckoning;
+    }
+
+    public boolean getOutlier() {
+        return outlier;
+    }
+
+    public boolean getSmoothing() {
+        return smoothing;
+    }
+
+    public boolean getBatched() {
+        return batched;
+    }
+
+    public boolean getMotion() {
+        return motion;
+    }
+
+    public boolean getBuffer() {
+        return buffer;
+    }
+
+    public boolean getServerBatch() {
+        return serverBatch;
+    }
+
+    /**
+     * Maximum number of positions in one request, always one unless the server is known to
+     * accept batches.
+     */
+    public int getBatch() {
+        return batch;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public boolean getCompression() {
+        return compression;
+    }
+
+    public boolean getLive() {
+        return live;
+    }
+
+    public boolean getAdaptive() {
+        return adaptive;
+    }
+
+    public boolean getUnmetered() {
+        return unmetered;
+    }
+
+    public boolean getValidated() {
+        return validated;
+    }
+
+    /**
+     * Whether the platform subscriptions of a position provider differ. These are only applied by
+     * stopping and starting the updates.
+     */
+    public boolean isProviderChanged(TrackingConfig other) {
+        return intervalCharging != other.intervalCharging
+                || distanceAngleCharging != other.distanceAngleCharging
+                || powerAsIgnition != other.powerAsIgnition
+                || temperatureMonitoring != other.temperatureMonitoring
+                || !accuracy.equals(other.accuracy)
+                || batched != other.batched
+                || motion != other.motion;
+    }
+
+    /**
+     * Whether the upload limits differ.
+     */
+    public boolean isLimitChanged(TrackingConfig other) {
+        return batch != other.batch || window != other.window || adaptive != other.adaptive;
+    }
+
+}
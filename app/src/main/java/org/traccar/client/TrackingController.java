@@ -18,43 +18,115 @@ package org.traccar.client;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
-public class TrackingController implements PositionProvider.PositionListener, NetworkManager.NetworkHandler {
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+public class TrackingController implements PositionProvider.PositionListener, NetworkManager.NetworkHandler,
+        SharedPreferences.OnSharedPreferenceChangeListener {
 
     private static final String TAG = TrackingController.class.getSimpleName();
-    private static final int RETRY_DELAY = 30 * 1000;
     private static final int WAKE_LOCK_TIMEOUT = 120 * 1000;
+    private static final int BATCH_LIMIT = 64 * 1024;
+    private static final int BACKFILL_INTERVAL = 2 * 1000;
+
+    // live positions never queue behind backlog requests, only one is in flight at a time
+    private static final Executor LIVE_EXECUTOR = Executors.newSingleThreadExecutor();
 
+    // backlog uploads are allowed by the upload policy on the current network
     private boolean isOnline;
     private boolean isWaiting;
+    private boolean isRetryPending;
+    private boolean isRetryDue;
+    private boolean isLiveSending;
+    private boolean isFailed;
+    private int pending;
+    private long nextRead;
+    private long isolateUpTo;
+    private final AttemptCounter attempts = new AttemptCounter();
+    private List<Position> suspect;
+    private String suspectReason;
 
     private Context context;
     private Handler handler;
     private SharedPreferences preferences;
 
-    private String url;
-    private boolean buffer;
+    private TrackingConfig config;
+    private AdaptiveLimit limit;
 
     private PositionProvider positionProvider;
     private DatabaseHelper databaseHelper;
     private NetworkManager networkManager;
+    private NetworkState networkState;
+    private UploadPolicy uploadPolicy;
+    private SendWindow window;
+    private WriteBuffer writeBuffer;
+    private RetryPolicy retryPolicy;
+    private HttpTransport transport;
+    private ProtocolFormatter formatter;
+
+    private final Runnable readTask = new Runnable() {
+        @Override
+        public void run() {
+            if (isOnline) {
+                read();
+            }
+        }
+    };
 
     public TrackingController(Context context) {
         this.context = context;
         handler = new Handler();
         preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        config = new TrackingConfig(context, preferences);
         positionProvider = PositionProviderFactory.create(context, this);
         databaseHelper = new DatabaseHelper(context);
         networkManager = new NetworkManager(context, this);
-        isOnline = networkManager.isOnline();
+        writeBuffer = new WriteBuffer(databaseHelper, new WriteBuffer.WriteHandler() {
+            @Override
+            public void onWrite(boolean success) {
+                if (success) {
+                    if (isOnline && isWaiting) {
+                        read();
+                        isWaiting = false;
+                    }
+                }
+            }
+        });
+        uploadPolicy = new UploadPolicy(config.getUnmetered(), config.getValidated());
+        networkState = networkManager.getState();
+        isOnline = uploadPolicy.allowBacklog(networkState);
 
-        url = preferences.getString(MainFragment.KEY_URL, context.getString(R.string.settings_url_default_value));
-        buffer = preferences.getBoolean(MainFragment.KEY_BUFFER, true);
+        formatter = new ProtocolFormatter(config.getUrl(), config.getPrecision());
+        limit = createLimit(config);
+        retryPolicy = new BackoffRetryPolicy();
+        transport = new HttpTransport();
+        transport.setCompression(config.getCompression());
+        window = new SendWindow(limit.getWindow());
+    }
+
+    private static AdaptiveLimit createLimit(TrackingConfig config) {
+        int maxBatch = config.getBatch();
+        int maxWindow = config.getWindow();
+        if (config.getAdaptive()) {
+            // preference values are upper bounds, start small and grow with measured throughput
+            return new AdaptiveLimit(1, maxBatch, 1, maxWindow);
+        } else {
+            return new AdaptiveLimit(maxBatch, maxBatch, maxWindow, maxWindow);
+        }
     }
 
     public void start() {
+        updateStatus();
+        if (uploadPolicy.allowLive(networkState)) {
+            AlarmQueue.getInstance(context).drain();
+            warmUp();
+        }
         if (isOnline) {
             read();
         }
@@ -64,9 +136,12 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
             Log.w(TAG, e);
         }
         networkManager.start();
+        preferences.registerOnSharedPreferenceChangeListener(this);
     }
 
     public void stop() {
+        preferences.unregisterOnSharedPreferenceChangeListener(this);
+        writeBuffer.flush();
         networkManager.stop();
         try {
             positionProvider.stopUpdates();
@@ -74,13 +149,51 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
             Log.w(TAG, e);
         }
         handler.removeCallbacksAndMessages(null);
+        StatusActivity.setSummary(null);
+    }
+
+    public void flush() {
+        writeBuffer.flush();
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        TrackingConfig previous = config;
+        config = new TrackingConfig(context, sharedPreferences);
+
+        if (!config.getUrl().equals(previous.getUrl()) || config.getPrecision() != previous.getPrecision()) {
+            formatter = new ProtocolFormatter(config.getUrl(), config.getPrecision());
+        }
+        if (!config.getUrl().equals(previous.getUrl())) {
+            transport.resetWarmUp();
+            if (uploadPolicy.allowLive(networkState)) {
+                warmUp();
+            }
+        }
+        if (config.getCompression() != previous.getCompression()) {
+            transport.setCompression(config.getCompression());
+        }
+        if (config.isLimitChanged(previous)) {
+            limit = createLimit(config);
+            updateLimit();
+        } else if (config.getBuffer() != previous.getBuffer()) {
+            updateStatus();
+        }
+        if (config.getUnmetered() != previous.getUnmetered() || config.getValidated() != previous.getValidated()) {
+            uploadPolicy = new UploadPolicy(config.getUnmetered(), config.getValidated());
+            updateOnline();
+        }
+
+        positionProvider.setConfig(config);
     }
 
     @Override
     public void onPositionUpdate(Position position) {
         StatusActivity.addMessage(context.getString(R.string.status_location_update));
         if (position != null) {
-            if (buffer) {
+            if (config.getBuffer() && isLive()) {
+                sendLive(position);
+            } else if (config.getBuffer()) {
                 write(position);
             } else {
                 send(position);
@@ -88,18 +201,59 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
         }
     }
 
+    @Override
+    public void onPositionBatch(List<Position> positions) {
+        StatusActivity.addMessage(context.getString(R.string.status_location_batch, positions.size()));
+        if (config.getBuffer()) {
+            int count = positions.size();
+            if (isLive()) {
+                sendLive(positions.get(count - 1));
+                count -= 1;
+            }
+            for (Position position : positions.subList(0, count)) {
+                log("write", position);
+                writeBuffer.write(position);
+            }
+            // one transaction for the whole batch
+            writeBuffer.flush();
+        } else {
+            for (Position position : positions) {
+                send(position);
+            }
+        }
+    }
+
     @Override
     public void onPositionError(Throwable error) {
     }
 
     @Override
-    public void onNetworkUpdate(boolean isOnline) {
-        int message = isOnline ? R.string.status_network_online : R.string.status_network_offline;
-        StatusActivity.addMessage(context.getString(message));
-        if (!this.isOnline && isOnline) {
-            read();
+    public void onNetworkUpdate(NetworkState state) {
+        if (state.isOnline() != networkState.isOnline()) {
+            int message = state.isOnline() ? R.string.status_network_online : R.string.status_network_offline;
+            StatusActivity.addMessage(context.getString(message));
+        }
+        if (!uploadPolicy.allowLive(networkState) && uploadPolicy.allowLive(state)) {
+            AlarmQueue.getInstance(context).drain();
+            transport.resetWarmUp();
+            warmUp();
         }
+        networkState = state;
+        updateOnline();
+    }
+
+    private void updateOnline() {
+        boolean wasOnline = this.isOnline;
+        boolean isOnline = uploadPolicy.allowBacklog(networkState);
         this.isOnline = isOnline;
+        if (!wasOnline && isOnline) {
+            if (isRetryDue) {
+                // the retry came up while offline, attempt it now
+                isRetryDue = false;
+                retryPolicy.onAttempt();
+            }
+            read();
+        }
     }
 
     //
@@ -109,6 +263,26 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
     //
     // read -> send -> retry -> read -> send
     //
+    // read -> send batch -> delete batch -> read
+    //
+    // read -> send, send -> delete -> read -> send
+    //
+    // read -> send compressed batch -> fallback -> retry -> read -> send
+    //
+    // send live -> write -> read -> send (live first mode, live send failed)
+    //
+    // read -> send batch -> isolate -> retry -> read -> send -> suspect -> read -> send
+    //         -> dead letter -> delete -> read
+    //
+    // read -> send -> suspect -> read -> send -> rejected -> retry (settings or server rejects every row)
+    //
+    // Every buffered send, read and delete is counted as pending. After a failure no new work is
+    // started; once the pending operations complete the window is cleared and the drain retried.
+    // While the retry policy is half open only a single probe request is sent. In live first mode
+    // new positions skip the buffer while the circuit is closed and reads are rate limited. A single
+    // rejected row is only dead lettered once the row after it is accepted, if that row is rejected
+    // as well the whole buffer is kept and retried with backoff.
+    //
 
     private void log(String action, Position position) {
         if (position != null) {
@@ -121,52 +295,115 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
         Log.d(TAG, action);
     }
 
-    private void write(Position position) {
-        log("write", position);
-        databaseHelper.insertPositionAsync(position, new DatabaseHelper.DatabaseHandler<Void>() {
+    private void warmUp() {
+        RequestManager.warmUpAsync(transport, config.getUrl(), new RequestManager.ResponseHandler() {
             @Override
-            public void onComplete(boolean success, Void result) {
-                if (success) {
-                    if (isOnline && isWaiting) {
-                        read();
-                        isWaiting = false;
+            public void onComplete(HttpTransport.Response response) {
+                if (response != null) {
+                    log("warm up " + response, null);
+                    if (response.isSuccess()) {
+                        StatusActivity.addMessage(context.getString(R.string.status_connection_ready,
+                                response.getLookupTime(), response.getConnectTime(), response.getFirstByteTime()));
                     }
                 }
             }
         });
     }
 
+    private void write(Position position) {
+        log("write", position);
+        writeBuffer.write(position);
+        if (isOnline && isWaiting) {
+            writeBuffer.flush();
+        }
+    }
+
     private void read() {
+        if (retryPolicy.getState() == RetryPolicy.State.OPEN) {
+            return; // the pending retry probes the server once the circuit delay has passed
+        }
         log("read", null);
-        databaseHelper.selectPositionAsync(new DatabaseHelper.DatabaseHandler<Position>() {
+        int inFlight = window.getSize() - (suspect != null ? 1 : 0);
+        int limit = (isProbing() ? (inFlight == 0 ? 1 : 0) : window.getAvailable()) * this.limit.getBatch();
+        if (limit == 0) {
+            return;
+        }
+        if (config.getLive()) {
+            long delay = nextRead - SystemClock.elapsedRealtime();
+            if (delay > 0) {
+                handler.removeCallbacks(readTask);
+                handler.postDelayed(readTask, delay);
+                return;
+            }
+            nextRead = SystemClock.elapsedRealtime() + BACKFILL_INTERVAL;
+        }
+        pending += 1;
+        databaseHelper.selectPositionsAsync(window.getLastId(), limit, new DatabaseHelper.DatabaseHandler<List<Position>>() {
             @Override
-            public void onComplete(boolean success, Position result) {
-                if (success) {
-                    if (result != null) {
-                        if (result.getDeviceId().equals(preferences.getString(MainFragment.KEY_DEVICE, null))) {
-                            send(result);
-                        } else {
-                            delete(result);
-                        }
-                    } else {
+            public void onComplete(boolean success, List<Position> result) {
+                pending -= 1;
+                if (success && !isFailed) {
+                    if (!dispatch(result)) {
                         isWaiting = true;
                     }
                 } else {
-                    retry();
+                    fail();
                 }
             }
         });
     }
 
-    private void delete(Position position) {
-        log("delete", position);
-        databaseHelper.deletePositionAsync(position.getId(), new DatabaseHelper.DatabaseHandler<Void>() {
+    private boolean dispatch(List<Position> positions) {
+        String deviceId = config.getDeviceId();
+        List<Position> released = new ArrayList<>();
+        boolean dispatched = false;
+        int index = 0;
+        while (index < positions.size() && !window.isFull() && !(isProbing() && dispatched)) {
+            if (positions.get(index).getId() <= window.getLastId()) {
+                index += 1;
+                continue;
+            }
+            // rows of a permanently rejected batch are sent one by one to find the bad one
+            int size = positions.get(index).getId() <= isolateUpTo ? 1 : limit.getBatch();
+            int end = index;
+            while (end < positions.size() && end - index < size
+                    && positions.get(end).getDeviceId().equals(deviceId)) {
+                end += 1;
+            }
+            if (end > index) {
+                List<Position> chunk = new ArrayList<>(positions.subList(index, end));
+                String body = size > 1 ? formatter.formatBatch(chunk, BATCH_LIMIT) : null;
+                window.add(chunk);
+                send(chunk, body);
+                index += chunk.size();
+            } else {
+                List<Position> chunk = positions.subList(index, index + 1);
+                window.add(chunk);
+                released.addAll(window.acknowledge(chunk));
+                index += 1;
+            }
+            dispatched = true;
+        }
+        if (!released.isEmpty()) {
+            delete(released);
+        }
+        return dispatched;
+    }
+
+    private void delete(List<Position> positions) {
+        // released positions are always the oldest rows in the buffer
+        Position last = positions.get(positions.size() - 1);
+        log("delete (count:" + positions.size() + ")", last);
+        attempts.clear(0, last.getId());
+        pending += 1;
+        databaseHelper.deletePositionsUpToAsync(last.getId(), new DatabaseHelper.DatabaseHandler<Integer>() {
             @Override
-            public void onComplete(boolean success, Void result) {
-                if (success) {
+            public void onComplete(boolean success, Integer result) {
+                pending -= 1;
+                if (success && !isFailed) {
                     read();
                 } else {
-                    retry();
+                    fail();
                 }
             }
         });
@@ -174,34 +411,233 @@ public class TrackingController implements PositionProvider.PositionListener, Ne
 
     private void send(final Position position) {
         log("send", position);
-        String request = ProtocolFormatter.formatRequest(url, position);
+        String request = formatter.format(position);
         RequestManager.sendRequestAsync(request, new RequestManager.RequestHandler() {
             @Override
             public void onComplete(boolean success) {
-                if (success) {
-                    if (buffer) {
-                        delete(position);
+                if (!success) {
+                    StatusActivity.addMessage(context.getString(R.string.status_send_fail));
+                }
+            }
+        });
+    }
+
+    private void sendLive(final Position position) {
+        log("send live", position);
+        isLiveSending = true;
+        String request = formatter.format(position);
+        RequestManager.sendRequestAsync(LIVE_EXECUTOR, transport, request, null, new RequestManager.ResponseHandler() {
+            @Override
+            public void onComplete(HttpTransport.Response response) {
+                isLiveSending = false;
+                if (response.isSuccess()) {
+                    retryPolicy.onSuccess();
+                } else {
+                    StatusActivity.addMessage(context.getString(R.string.status_send_fail));
+                    countFailure();
+                    write(position);
+                    retry();
+                }
+            }
+        });
+    }
+
+    private void send(final List<Position> positions, final String body) {
+        String request;
+        if (body != null) {
+            log("send batch (count:" + positions.size() + ")", null);
+            request = config.getUrl();
+        } else {
+            log("send", positions.get(0));
+            request = formatter.format(positions.get(0));
+        }
+        pending += 1;
+        RequestManager.sendRequestAsync(transport, request, body, new RequestManager.ResponseHandler() {
+            @Override
+            public void onComplete(HttpTransport.Response response) {
+                pending -= 1;
+                log("response " + response, null);
+                if (response.isSuccess()) {
+                    retryPolicy.onSuccess();
+                    if (config.getAdaptive() && limit.onSuccess(response.getTotalTime())) {
+                        updateLimit();
+                    }
+                    List<Position> released = window.acknowledge(positions);
+                    if (suspect != null) {
+                        // rows next to the rejected one are accepted, so the row itself is at fault
+                        List<Position> poison = suspect;
+                        suspect = null;
+                        updateCapacity();
+                        deadLetter(poison, suspectReason);
+                    }
+                    if (!released.isEmpty()) {
+                        delete(released);
+                    } else if (isFailed) {
+                        fail();
+                    }
+                } else if (body != null && transport.getCompression()
+                        && response.getStatus() == HttpTransport.Status.CLIENT_ERROR) {
+                    fallback();
+                    fail();
+                } else if (response.isPermanent(attempts.count(positions.get(0).getId()))) {
+                    if (positions.size() > 1) {
+                        isolate(positions);
+                        fail();
+                    } else if (suspect == null) {
+                        suspect(positions, response);
+                    } else {
+                        // neighbouring rows are rejected too, the server or the settings are at fault
+                        log("rejected", positions.get(0));
+                        StatusActivity.addMessage(context.getString(R.string.status_send_rejected));
+                        suspect = null;
+                        updateCapacity();
+                        backOff();
+                        fail();
                     }
                 } else {
                     StatusActivity.addMessage(context.getString(R.string.status_send_fail));
-                    if (buffer) {
-                        retry();
+                    backOff();
+                    fail();
+                }
+            }
+        });
+    }
+
+    private void backOff() {
+        countFailure();
+        if (config.getAdaptive() && limit.onFailure()) {
+            updateLimit();
+        }
+    }
+
+    private void countFailure() {
+        RetryPolicy.State state = retryPolicy.getState();
+        retryPolicy.onFailure();
+        if (state != RetryPolicy.State.OPEN && retryPolicy.getState() == RetryPolicy.State.OPEN) {
+            StatusActivity.addMessage(context.getString(R.string.status_circuit_open));
+        }
+    }
+
+    private void isolate(List<Position> positions) {
+        log("isolate (count:" + positions.size() + ")", positions.get(0));
+        long lastId = positions.get(positions.size() - 1).getId();
+        isolateUpTo = Math.max(isolateUpTo, lastId);
+        attempts.clear(positions.get(0).getId(), lastId);
+    }
+
+    /**
+     * Holds a rejected row in the window and sends the next row as a probe. The row is only dead
+     * lettered once a neighbouring row is accepted.
+     */
+    private void suspect(List<Position> positions, HttpTransport.Response response) {
+        long id = positions.get(0).getId();
+        suspect = positions;
+        suspectReason = response.getStatus() + " (code:" + response.getCode() + " attempts:" + attempts.get(id) + ")";
+        log("suspect " + suspectReason, positions.get(0));
+        updateCapacity();
+        if (isFailed) {
+            fail();
+        } else {
+            read();
+        }
+    }
+
+    private void deadLetter(final List<Position> positions, String reason) {
+        Position position = positions.get(0);
+        log("dead letter " + reason, position);
+        StatusActivity.addMessage(context.getString(R.string.status_dead_letter));
+        attempts.clear(position.getId(), position.getId());
+        pending += 1;
+        databaseHelper.deadLetterPositionAsync(position.getId(), reason, new DatabaseHelper.DatabaseHandler<Void>() {
+            @Override
+            public void onComplete(boolean success, Void result) {
+                pending -= 1;
+                if (success) {
+                    List<Position> released = window.acknowledge(positions);
+                    if (!released.isEmpty()) {
+                        delete(released);
+                    } else if (isFailed) {
+                        fail();
                     }
+                } else {
+                    fail();
                 }
             }
         });
     }
 
+    private void fail() {
+        isFailed = true;
+        if (pending == 0) {
+            isFailed = false;
+            window.clear();
+            suspect = null;
+            updateCapacity();
+            retry();
+        }
+    }
+
+    private void fallback() {
+        // server does not accept compressed batches, send plain query string requests instead
+        log("compression rejected", null);
+        StatusActivity.addMessage(context.getString(R.string.status_compression_rejected));
+        transport.setCompression(false);
+        limit.setMaxBatch(1);
+        updateLimit();
+    }
+
+    private void updateLimit() {
+        log("limit (" + limit + ")", null);
+        updateCapacity();
+        updateStatus();
+    }
+
+    private void updateCapacity() {
+        // a suspect row waiting for its probe does not take the probe's place in the window
+        window.setCapacity(limit.getWindow() + (suspect != null ? 1 : 0));
+    }
+
+    private void updateStatus() {
+        if (config.getBuffer()) {
+            StatusActivity.setSummary(context.getString(R.string.status_upload, limit.getBatch(), limit.getWindow()));
+        } else {
+            StatusActivity.setSummary(null);
+        }
+    }
+
+    /**
+     * Live sending needs a closed circuit and no live request in flight, otherwise new positions go
+     * to the buffer instead of piling up behind a slow request and arriving late as live.
+     */
+    private boolean isLive() {
+        return config.getLive() && uploadPolicy.allowLive(networkState)
+                && retryPolicy.getState() == RetryPolicy.State.CLOSED && !isLiveSending;
+    }
+
+    private boolean isProbing() {
+        return retryPolicy.getState() == RetryPolicy.State.HALF_OPEN;
+    }
+
     private void retry() {
-        log("retry", null);
+        if (isRetryPending) {
+            return; // live and backlog failures share one retry
+        }
+        isRetryPending = true;
+        isRetryDue = false;
+        long delay = retryPolicy.getDelay();
+        log("retry (delay:" + delay / 1000 + " state:" + retryPolicy + ")", null);
         handler.postDelayed(new Runnable() {
             @Override
             public void run() {
+                isRetryPending = false;
                 if (isOnline) {
+                    retryPolicy.onAttempt();
                     read();
+                } else {
+                    isRetryDue = true;
                 }
             }
-        }, RETRY_DELAY);
+        }, delay);
     }
 
 }
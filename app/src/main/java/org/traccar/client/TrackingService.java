@@ -114,6 +114,14 @@ public class TrackingService extends Service {
         return START_STICKY;
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (trackingController != null) {
+            trackingController.flush();
+        }
+    }
+
     @Override
     public void onDestroy() {
         Log.i(TAG, "service destroy");
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming trajectory simplification with an opening window. Positions are held back while the
+ * straight segment from the last reported position to the newest one stays within the maximum
+ * error of every held position. When it no longer does, the last held position is reported and
+ * becomes the start of the next segment, so every dropped position is within the maximum error of
+ * the reported track. Corners break the segment on their own. Stops are kept by reporting the
+ * arrival and the departure whenever a position changes between moving and stopped. A position
+ * is reported at the latest once the maximum hold time has passed since the last reported one,
+ * so a long straight drive does not leave the server without updates.
+ */
+public class TrajectorySimplifier {
+
+    public static final double STOP_SPEED = 1; // knots
+    public static final int MAX_BUFFER = 100;
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final double maxError;
+    private final int maxBuffer;
+    private long maxHold;
+
+    private Position anchor;
+    private final List<Position> buffer = new ArrayList<>();
+
+    public TrajectorySimplifier(double maxError, long maxHold) {
+        this(maxError, maxHold, MAX_BUFFER);
+    }
+
+    public TrajectorySimplifier(double maxError, long maxHold, int maxBuffer) {
+        this.maxError = maxError;
+        this.maxHold = maxHold;
+        this.maxBuffer = maxBuffer;
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds between reported positions.
+     */
+    public void setMaxHold(long maxHold) {
+        this.maxHold = maxHold;
+    }
+
+    private boolean isExpired(Position position) {
+        return position.getTime().getTime() - anchor.getTime().getTime() >= maxHold;
+    }
+
+    private static boolean isStop(Position position) {
+        return position.getSpeed() < STOP_SPEED;
+    }
+
+    /**
+     * Distance in meters from the point to the segment between start and end, using a local
+     * equirectangular projection around the start.
+     */
+    public static double segmentDistance(Position point, Position start, Position end) {
+        double scale = Math.cos(Math.toRadians(start.getLatitude()));
+        double x = normalize(point.getLongitude() - start.getLongitude()) * scale;
+        double y = point.getLatitude() - start.getLatitude();
+        double dx = normalize(end.getLongitude() - start.getLongitude()) * scale;
+        double dy = end.getLatitude() - start.getLatitude();
+        double length = dx * dx + dy * dy;
+        double t = length > 0 ? Math.max(0, Math.min(1, (x * dx + y * dy) / length)) : 0;
+        return Math.toRadians(Math.hypot(x - t * dx, y - t * dy)) * EARTH_RADIUS;
+    }
+
+    private static double normalize(double longitude) {
+        if (longitude > 180) {
+            return longitude - 360;
+        } else if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude;
+    }
+
+    private boolean fits(Position position) {
+        for (Position held : buffer) {
+            if (segmentDistance(held, anchor, position) > maxError) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void commit(Position position, List<Position> result) {
+        result.add(position);
+        anchor = position;
+        buffer.clear();
+    }
+
+    /**
+     * Adds the next position and returns the positions to report, oldest first.
+     */
+    public List<Position> add(Position position) {
+        List<Position> result = new ArrayList<>();
+        if (anchor == null) {
+            commit(position, result);
+            return result;
+        }
+        Position previous = buffer.isEmpty() ? anchor : buffer.get(buffer.size() - 1);
+        boolean stop = isStop(position);
+        if (stop != isStop(previous)) {
+            if (!buffer.isEmpty()) {
+                commit(previous, result);
+            }
+            if (stop) {
+                commit(position, result);
+                return result;
+            }
+        } else if (!buffer.isEmpty() && (buffer.size() >= maxBuffer || !fits(position))) {
+            commit(previous, result);
+        }
+        if (isExpired(position)) {
+            // every held position fits the segment to this one
+            commit(position, result);
+            return result;
+        }
+        buffer.add(position);
+        return result;
+    }
+
+    /**
+     * Reports the last held position, for example when tracking stops.
+     */
+    public List<Position> flush() {
+        List<Position> result = new ArrayList<>();
+        if (!buffer.isEmpty()) {
+            commit(buffer.get(buffer.size() - 1), result);
+        }
+        return result;
+    }
+
+}
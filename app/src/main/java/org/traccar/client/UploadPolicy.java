@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+/**
+ * Decides which traffic may use the current network. Live positions and alarms go out on any
+ * connected network, while the buffered backlog can optionally wait for a validated network or an
+ * unmetered one, so that bulk uploads do not burn timeouts or mobile data. Validation is opt-in,
+ * some networks such as private APNs or firewalled Wi-Fi never pass the system connectivity check.
+ */
+public class UploadPolicy {
+
+    private final boolean unmeteredBacklog;
+    private final boolean validatedBacklog;
+
+    public UploadPolicy(boolean unmeteredBacklog, boolean validatedBacklog) {
+        this.unmeteredBacklog = unmeteredBacklog;
+        this.validatedBacklog = validatedBacklog;
+    }
+
+    public boolean allowLive(NetworkState state) {
+        return state.isOnline();
+    }
+
+    public boolean allowBacklog(NetworkState state) {
+        return state.isOnline()
+                && !(validatedBacklog && !state.isValidated())
+                && !(unmeteredBacklog && state.isMetered());
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.client;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects positions in memory and commits them to the database in a single transaction once
+ * enough positions are collected or the oldest one has waited long enough. A batch that fails to
+ * commit is put back in front of newer positions and tried again after the delay.
+ */
+public class WriteBuffer {
+
+    private static final String TAG = WriteBuffer.class.getSimpleName();
+
+    public static final int FLUSH_SIZE = 20;
+    public static final int FLUSH_DELAY = 60 * 1000;
+
+    public interface WriteHandler {
+        void onWrite(boolean success);
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final WriteHandler handler;
+    private final Handler timer = new Handler();
+
+    private List<Position> positions = new ArrayList<>();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public WriteBuffer(DatabaseHelper databaseHelper, WriteHandler handler) {
+        this.databaseHelper = databaseHelper;
+        this.handler = handler;
+    }
+
+    public void write(Position position) {
+        positions.add(position);
+        if (positions.size() >= FLUSH_SIZE) {
+            flush();
+        } else if (positions.size() == 1) {
+            timer.postDelayed(flushTask, FLUSH_DELAY);
+        }
+    }
+
+    public void flush() {
+        timer.removeCallbacks(flushTask);
+        if (positions.isEmpty()) {
+            return;
+        }
+        final List<Position> batch = positions;
+        positions = new ArrayList<>();
+        Log.d(TAG, "flush (count:" + batch.size() + ")");
+        databaseHelper.insertPositionsAsync(batch, new DatabaseHelper.DatabaseHandler<Void>() {
+            @Override
+            public void onComplete(boolean success, Void result) {
+                if (!success) {
+                    Log.w(TAG, "flush failed (count:" + batch.size() + ")");
+                    batch.addAll(positions);
+                    positions = batch;
+                    timer.removeCallbacks(flushTask);
+                    timer.postDelayed(flushTask, FLUSH_DELAY);
+                }
+                handler.onWrite(success);
+            }
+        });
+    }
+
+}
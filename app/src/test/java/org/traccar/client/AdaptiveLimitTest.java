@@ -0,0 +1,53 @@
+package org.traccar.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimitTest {
+
+    @Test
+    public void testIncrease() throws Exception {
+
+        AdaptiveLimit limit = new AdaptiveLimit(1, 50, 1, 4);
+
+        assertTrue(limit.onSuccess(100));
+        assertEquals(2, limit.getBatch());
+        assertEquals(2, limit.getWindow());
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSuccess(100);
+        }
+        assertEquals(50, limit.getBatch());
+        assertEquals(4, limit.getWindow());
+        assertFalse(limit.onSuccess(100));
+
+    }
+
+    @Test
+    public void testDecrease() throws Exception {
+
+        AdaptiveLimit limit = new AdaptiveLimit(40, 50, 4, 4);
+
+        assertTrue(limit.onSuccess(AdaptiveLimit.TARGET_LATENCY + 1));
+        assertEquals(20, limit.getBatch());
+        assertEquals(4, limit.getWindow());
+
+        assertTrue(limit.onFailure());
+        assertEquals(10, limit.getBatch());
+        assertEquals(2, limit.getWindow());
+
+        limit.onSuccess(100);
+        assertEquals(11, limit.getBatch());
+        limit.onSuccess(100);
+        assertEquals(12, limit.getBatch());
+        assertEquals(3, limit.getWindow());
+
+        limit.setMaxBatch(1);
+        assertEquals(1, limit.getBatch());
+
+    }
+
+}
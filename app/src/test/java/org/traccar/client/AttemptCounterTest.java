@@ -0,0 +1,38 @@
+package org.traccar.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AttemptCounterTest {
+
+    @Test
+    public void testInterleaved() throws Exception {
+
+        // two chunks in a window of two fail alternately
+        AttemptCounter attempts = new AttemptCounter();
+        for (int i = 1; i < HttpTransport.MAX_ATTEMPTS; i++) {
+            assertEquals(i, attempts.count(1));
+            assertEquals(i, attempts.count(5));
+        }
+        assertEquals(HttpTransport.MAX_ATTEMPTS, attempts.count(1));
+        assertEquals(HttpTransport.MAX_ATTEMPTS, attempts.count(5));
+
+    }
+
+    @Test
+    public void testClear() throws Exception {
+
+        AttemptCounter attempts = new AttemptCounter();
+        attempts.count(1);
+        attempts.count(5);
+        attempts.count(9);
+
+        attempts.clear(0, 5);
+        assertEquals(0, attempts.get(1));
+        assertEquals(0, attempts.get(5));
+        assertEquals(1, attempts.get(9));
+
+    }
+
+}
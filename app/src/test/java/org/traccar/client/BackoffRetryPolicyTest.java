@@ -0,0 +1,50 @@
+package org.traccar.client;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackoffRetryPolicyTest {
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(new Random(1));
+
+        policy.onFailure();
+        while (policy.getState() == RetryPolicy.State.CLOSED) {
+            assertTrue(policy.getDelay() <= 5 * 60 * 1000);
+            policy.onFailure();
+        }
+        assertTrue(policy.getDelay() >= 5 * 60 * 1000);
+
+        policy.onAttempt();
+        assertEquals(RetryPolicy.State.HALF_OPEN, policy.getState());
+
+        policy.onFailure();
+        assertEquals(RetryPolicy.State.OPEN, policy.getState());
+
+        policy.onAttempt();
+        policy.onSuccess();
+        assertEquals(RetryPolicy.State.CLOSED, policy.getState());
+        assertEquals(0, policy.getFailures());
+
+    }
+
+    @Test
+    public void testJitter() throws Exception {
+
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(new Random(1));
+        policy.onFailure();
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelay();
+            assertTrue(delay >= 0 && delay < 5 * 1000);
+        }
+
+    }
+
+}
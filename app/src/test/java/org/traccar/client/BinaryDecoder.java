@@ -0,0 +1,98 @@
+package org.traccar.client;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stand-in for the server side decoder of {@link BinaryFormatter} frames.
+ */
+public class BinaryDecoder {
+
+    private final byte[] data;
+    private int index;
+
+    public BinaryDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[index++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private long readSigned() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public List<Position> decode() {
+        if (data[index++] != BinaryFormatter.VERSION) {
+            throw new IllegalArgumentException("Unsupported version");
+        }
+
+        int deviceIdLength = (int) readVarint();
+        String deviceId = new String(data, index, deviceIdLength, Charset.forName("UTF-8"));
+        index += deviceIdLength;
+
+        int count = (int) readVarint();
+        List<Position> positions = new ArrayList<>(count);
+
+        long time = 0;
+        long latitude = 0;
+        long longitude = 0;
+        long speed = 0;
+        long course = 0;
+        long altitude = 0;
+        for (int i = 0; i < count; i++) {
+            Position position = new Position();
+            position.setDeviceId(deviceId);
+
+            time += readSigned();
+            position.setTime(new Date(time * 1000));
+            latitude += readSigned();
+            position.setLatitude(latitude / BinaryFormatter.COORDINATE_SCALE);
+            longitude += readSigned();
+            position.setLongitude(longitude / BinaryFormatter.COORDINATE_SCALE);
+            speed += readSigned();
+            position.setSpeed(speed / BinaryFormatter.SPEED_SCALE);
+            course = ((course + readSigned()) % BinaryFormatter.COURSE_RANGE + BinaryFormatter.COURSE_RANGE)
+                    % BinaryFormatter.COURSE_RANGE;
+            position.setCourse(course / BinaryFormatter.COURSE_SCALE);
+            altitude += readSigned();
+            position.setAltitude(altitude / BinaryFormatter.ALTITUDE_SCALE);
+
+            position.setAccuracy(readVarint() / BinaryFormatter.ACCURACY_SCALE);
+            position.setBattery(readVarint() / BinaryFormatter.BATTERY_SCALE);
+
+            int flags = data[index++];
+            if ((flags & BinaryFormatter.FLAG_IGNITION) != 0) {
+                position.setIgnition((flags & BinaryFormatter.FLAG_IGNITION_ON) != 0 ? 1 : 0);
+            } else {
+                position.setIgnition(-1);
+            }
+            position.setMock((flags & BinaryFormatter.FLAG_MOCK) != 0);
+            if ((flags & BinaryFormatter.FLAG_TEMPERATURE) != 0) {
+                position.setTemperature((float) (readSigned() / BinaryFormatter.TEMPERATURE_SCALE));
+            } else {
+                position.setTemperature(Float.NaN);
+            }
+
+            positions.add(position);
+        }
+
+        if (index != data.length) {
+            throw new IllegalArgumentException("Trailing data");
+        }
+        return positions;
+    }
+
+}
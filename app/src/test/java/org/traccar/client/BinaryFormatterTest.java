@@ -0,0 +1,135 @@
+package org.traccar.client;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryFormatterTest {
+
+    private static final int COUNT = 1000;
+
+    private static List<Position> createTrack(Random random, int count) {
+        List<Position> positions = new ArrayList<>();
+        long time = 1500000000000L + random.nextInt(1000000) * 1000L;
+        double latitude = random.nextDouble() * 180 - 90;
+        double longitude = random.nextDouble() * 360 - 180;
+        for (int i = 0; i < count; i++) {
+            Position position = new Position();
+            position.setDeviceId("123456789012345");
+            time += random.nextInt(120) * 1000L;
+            position.setTime(new Date(time));
+            latitude = Math.max(Math.min(latitude + random.nextGaussian() * 0.001, 90), -90);
+            longitude = Math.max(Math.min(longitude + random.nextGaussian() * 0.001, 180), -180);
+            position.setLatitude(latitude);
+            position.setLongitude(longitude);
+            position.setAltitude(random.nextDouble() * 2000 - 100);
+            position.setSpeed(random.nextDouble() * 100);
+            position.setCourse(random.nextDouble() * 360);
+            position.setAccuracy(random.nextDouble() * 50);
+            position.setBattery(random.nextInt(101));
+            position.setIgnition(random.nextInt(3) - 1);
+            position.setTemperature(random.nextBoolean() ? (float) (random.nextGaussian() * 20) : Float.NaN);
+            position.setMock(random.nextBoolean());
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+
+        BinaryFormatter formatter = new BinaryFormatter();
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            List<Position> expected = createTrack(random, random.nextInt(50) + 1);
+            List<Position> actual = new BinaryDecoder(formatter.formatBatch(expected)).decode();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Position e = expected.get(i);
+                Position a = actual.get(i);
+                assertEquals(e.getDeviceId(), a.getDeviceId());
+                assertEquals(e.getTime().getTime() / 1000, a.getTime().getTime() / 1000);
+                assertEquals(e.getLatitude(), a.getLatitude(), 0.6 / BinaryFormatter.COORDINATE_SCALE);
+                assertEquals(e.getLongitude(), a.getLongitude(), 0.6 / BinaryFormatter.COORDINATE_SCALE);
+                assertEquals(e.getAltitude(), a.getAltitude(), 0.6 / BinaryFormatter.ALTITUDE_SCALE);
+                assertEquals(e.getSpeed(), a.getSpeed(), 0.6 / BinaryFormatter.SPEED_SCALE);
+                double course = Math.abs(e.getCourse() - a.getCourse());
+                assertTrue(Math.min(course, 360 - course) <= 0.6 / BinaryFormatter.COURSE_SCALE);
+                assertEquals(e.getAccuracy(), a.getAccuracy(), 0.6 / BinaryFormatter.ACCURACY_SCALE);
+                assertEquals(e.getBattery(), a.getBattery(), 0.6 / BinaryFormatter.BATTERY_SCALE);
+                assertEquals(e.getIgnition(), a.getIgnition());
+                assertEquals(e.getMock(), a.getMock());
+                if (Float.isNaN(e.getTemperature())) {
+                    assertTrue(Float.isNaN(a.getTemperature()));
+                } else {
+                    assertEquals(e.getTemperature(), a.getTemperature(), 0.6 / BinaryFormatter.TEMPERATURE_SCALE);
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testCourseWrap() throws Exception {
+
+        List<Position> positions = createTrack(new Random(1), 2);
+        positions.get(0).setCourse(359.9);
+        positions.get(1).setCourse(0.1);
+
+        byte[] data = new BinaryFormatter().formatBatch(positions);
+        List<Position> decoded = new BinaryDecoder(data).decode();
+
+        assertEquals(359.9, decoded.get(0).getCourse(), 0.01);
+        assertEquals(0.1, decoded.get(1).getCourse(), 0.01);
+
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+
+        List<Position> positions = new ArrayList<>();
+        assertTrue(new BinaryDecoder(new BinaryFormatter().formatBatch(positions)).decode().isEmpty());
+
+    }
+
+    @Ignore("benchmark, run manually")
+    @Test
+    public void benchmarkFormat() throws Exception {
+
+        List<Position> positions = createTrack(new Random(0), 50);
+        ProtocolFormatter textFormatter = new ProtocolFormatter("http://localhost:5055");
+        BinaryFormatter binaryFormatter = new BinaryFormatter();
+
+        for (int i = 0; i < COUNT; i++) {
+            textFormatter.formatBatch(new ArrayList<>(positions), Integer.MAX_VALUE);
+            binaryFormatter.formatBatch(positions);
+        }
+
+        int textSize = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            textSize = textFormatter.formatBatch(new ArrayList<>(positions), Integer.MAX_VALUE).getBytes("UTF-8").length;
+        }
+        long textTime = (System.nanoTime() - start) / COUNT;
+
+        int binarySize = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            binarySize = binaryFormatter.formatBatch(positions).length;
+        }
+        long binaryTime = (System.nanoTime() - start) / COUNT;
+
+        System.out.println("text: " + textSize + " bytes, " + textTime + " ns/batch");
+        System.out.println("binary: " + binarySize + " bytes, " + binaryTime + " ns/batch");
+
+    }
+
+}
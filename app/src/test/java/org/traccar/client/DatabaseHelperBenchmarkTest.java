@@ -0,0 +1,126 @@
+package org.traccar.client;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.location.Location;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Fills and drains the buffer with the former ContentValues and string bound queries, with the
+ * compiled statements with and without write-ahead logging, and with batched inserts, and reports
+ * the time per operation. Timings depend on the machine, so the benchmark is not part of the unit
+ * suite.
+ */
+@Ignore("benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseHelperBenchmarkTest {
+
+    private static final int COUNT = 500;
+    private static final int BATCH = 20;
+
+    private static void report(String operation, long start) {
+        System.out.println(operation + ": " + (System.nanoTime() - start) / COUNT / 1000 + " us/op");
+    }
+
+    private static void legacyInsert(SQLiteDatabase db, Position position) {
+        ContentValues values = new ContentValues();
+        values.put("deviceId", position.getDeviceId());
+        values.put("time", position.getTime().getTime());
+        values.put("latitude", position.getLatitude());
+        values.put("longitude", position.getLongitude());
+        values.put("altitude", position.getAltitude());
+        values.put("speed", position.getSpeed());
+        values.put("course", position.getCourse());
+        values.put("accuracy", position.getAccuracy());
+        values.put("battery", position.getBattery());
+        values.put("ignition", position.getIgnition());
+        values.put("temperature", position.getTemperature());
+        values.put("mock", position.getMock() ? 1 : 0);
+        db.insertOrThrow("position", null, values);
+    }
+
+    private static long legacySelectHead(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT * FROM position ORDER BY id LIMIT 1", null);
+        try {
+            cursor.moveToFirst();
+            cursor.getString(cursor.getColumnIndex("deviceId"));
+            cursor.getDouble(cursor.getColumnIndex("latitude"));
+            cursor.getDouble(cursor.getColumnIndex("longitude"));
+            return cursor.getLong(cursor.getColumnIndex("id"));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void benchmarkDrain() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            legacyInsert(db, position);
+        }
+        report("insert (ContentValues)", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            long id = legacySelectHead(db);
+            db.delete("position", "id = ?", new String[] { String.valueOf(id) });
+        }
+        report("select and delete (string bound)", start);
+
+        assertNull(databaseHelper.selectPosition());
+
+        db.disableWriteAheadLogging();
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            databaseHelper.insertPosition(position);
+        }
+        report("insert (statement, rollback journal)", start);
+        db.delete("position", null, null);
+        db.enableWriteAheadLogging();
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            databaseHelper.insertPosition(position);
+        }
+        report("insert (statement)", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            databaseHelper.deletePosition(databaseHelper.selectPosition().getId());
+        }
+        report("select and delete (statement)", start);
+
+        assertNull(databaseHelper.selectPosition());
+
+        List<Position> batch = Collections.nCopies(BATCH, position);
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT / BATCH; i++) {
+            databaseHelper.insertPositions(batch);
+        }
+        report("insert (batch of " + BATCH + ")", start);
+
+        assertEquals(COUNT, databaseHelper.selectPositions(0, COUNT * 2).size());
+
+    }
+
+}
@@ -9,8 +9,11 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -39,4 +42,71 @@ public class DatabaseHelperTest {
 
     }
 
+    @Test
+    public void testBatch() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+
+        assertEquals(0, databaseHelper.selectPositions(10).size());
+
+        databaseHelper.insertPositions(Arrays.asList(position, position, position));
+
+        List<Position> positions = databaseHelper.selectPositions(2);
+
+        assertEquals(2, positions.size());
+
+        assertEquals(2, databaseHelper.deletePositionsUpTo(positions.get(1).getId()));
+
+        assertEquals(1, databaseHelper.selectPositions(10).size());
+
+    }
+
+    @Test
+    public void testAlarm() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+        databaseHelper.insertPosition(position);
+
+        position.setAlarm("sos");
+        databaseHelper.insertPosition(position);
+
+        assertNull(databaseHelper.selectPositions(10).get(0).getAlarm());
+        assertEquals(1, databaseHelper.selectPositions(10).size());
+
+        Position alarm = databaseHelper.selectAlarm();
+        assertNotNull(alarm);
+        assertEquals("sos", alarm.getAlarm());
+
+        assertEquals(1, databaseHelper.deletePositionsUpTo(alarm.getId()));
+        assertNotNull(databaseHelper.selectAlarm());
+
+        databaseHelper.deletePosition(alarm.getId());
+        assertNull(databaseHelper.selectAlarm());
+
+    }
+
+    @Test
+    public void testDeadLetter() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+        databaseHelper.insertPositions(Arrays.asList(position, position));
+
+        List<Position> positions = databaseHelper.selectPositions(10);
+        databaseHelper.deadLetterPosition(positions.get(0).getId(), "CLIENT_ERROR");
+
+        assertEquals(1, databaseHelper.selectDeadLetterCount());
+        positions = databaseHelper.selectPositions(10);
+        assertEquals(1, positions.size());
+
+    }
+
 }
@@ -0,0 +1,81 @@
+package org.traccar.client;
+
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DeadReckoningFilterTest {
+
+    private static final double METERS_PER_DEGREE = 111195;
+
+    private static Location createLocation(long time, double north, double east, float course) {
+        Location location = new Location("gps");
+        location.setTime(time);
+        location.setLatitude(north / METERS_PER_DEGREE);
+        location.setLongitude(east / METERS_PER_DEGREE);
+        location.setSpeed(20);
+        location.setBearing(course);
+        return location;
+    }
+
+    @Test
+    public void testPredictionError() throws Exception {
+
+        Location last = createLocation(0, 0, 0, 90);
+        assertEquals(0, DeadReckoningFilter.predictionError(createLocation(10000, 0, 200, 90), last), 0.1);
+        assertEquals(50, DeadReckoningFilter.predictionError(createLocation(10000, 50, 200, 90), last), 0.1);
+
+    }
+
+    @Test
+    public void testReported() throws Exception {
+
+        DeadReckoningFilter filter = new DeadReckoningFilter(30);
+        Location last = createLocation(0, 0, 0, 90);
+        Location location = createLocation(10000, 0, 200, 90);
+
+        assertEquals(PositionFilter.Result.DROP, filter.filter(location, last));
+
+        filter.setReported(createLocation(0, 40, 0, 90));
+        assertEquals(PositionFilter.Result.ACCEPT, filter.filter(location, last));
+
+        filter.setReported(createLocation(-1000, 40, 0, 90));
+        assertEquals(PositionFilter.Result.DROP, filter.filter(location, last));
+
+    }
+
+    @Test
+    public void testReporting() throws Exception {
+
+        DeadReckoningFilter deadReckoningFilter = new DeadReckoningFilter(30);
+        PositionFilterChain chain = new PositionFilterChain()
+                .add(new IntervalFilter(600000))
+                .add(deadReckoningFilter);
+
+        Location last = createLocation(0, 0, 0, 0);
+        assertTrue(chain.accept(last, null));
+
+        int reported = 0;
+        for (int i = 1; i <= 300; i++) {
+            double north = i < 200 ? i * 20 : 199 * 20;
+            double east = i < 200 ? 0 : (i - 199) * 20;
+            Location location = createLocation(i * 1000, north, east, i < 200 ? 0 : 90);
+            if (chain.accept(location, last)) {
+                last = location;
+                reported += 1;
+            }
+        }
+
+        assertEquals(1, reported);
+        assertEquals(1, deadReckoningFilter.getAccepted());
+        assertEquals(299, deadReckoningFilter.getDropped());
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.traccar.client;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DeviceStateMonitorTest {
+
+    private static Intent createBatteryIntent(int level, int plugged, int temperature) {
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, level);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 200);
+        intent.putExtra(BatteryManager.EXTRA_PLUGGED, plugged);
+        intent.putExtra(BatteryManager.EXTRA_TEMPERATURE, temperature);
+        return intent;
+    }
+
+    @Test
+    public void testState() throws Exception {
+
+        final List<Boolean> updates = new ArrayList<>();
+        DeviceStateMonitor monitor = new DeviceStateMonitor(RuntimeEnvironment.application,
+                new DeviceStateMonitor.ChargingHandler() {
+                    @Override
+                    public void onChargingUpdate(boolean isCharging) {
+                        updates.add(isCharging);
+                    }
+                }, true);
+
+        monitor.onReceive(RuntimeEnvironment.application, createBatteryIntent(100, 0, 250));
+        updates.clear();
+
+        DeviceState state = monitor.getState();
+        assertEquals(50, state.getBatteryLevel(), 0.01);
+        assertEquals(25, state.getTemperature(), 0.01);
+
+        monitor.onReceive(RuntimeEnvironment.application, createBatteryIntent(100, BatteryManager.BATTERY_PLUGGED_AC, 250));
+        monitor.onReceive(RuntimeEnvironment.application, createBatteryIntent(102, BatteryManager.BATTERY_PLUGGED_AC, 250));
+
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0));
+        assertTrue(monitor.getState().isCharging());
+        assertEquals(51, monitor.getState().getBatteryLevel(), 0.01);
+
+    }
+
+}
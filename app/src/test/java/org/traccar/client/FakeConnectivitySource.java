@@ -0,0 +1,33 @@
+package org.traccar.client;
+
+/**
+ * Connectivity source driven by tests instead of the system.
+ */
+public class FakeConnectivitySource implements ConnectivitySource {
+
+    private NetworkState state = NetworkState.OFFLINE;
+    private Listener listener;
+
+    public void setState(NetworkState state) {
+        this.state = state;
+        if (listener != null) {
+            listener.onStateChanged(state);
+        }
+    }
+
+    @Override
+    public NetworkState getState() {
+        return state;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void stop() {
+        listener = null;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.traccar.client;
+
+/**
+ * Motion detector driven by tests instead of sensors.
+ */
+public class FakeMotionDetector implements MotionDetector {
+
+    private MotionListener listener;
+
+    public void setMoving(boolean moving) {
+        if (listener != null) {
+            listener.onMotionChanged(moving);
+        }
+    }
+
+    @Override
+    public void start(MotionListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void stop() {
+        listener = null;
+    }
+
+}
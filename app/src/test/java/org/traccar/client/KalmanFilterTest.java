@@ -0,0 +1,75 @@
+package org.traccar.client;
+
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class KalmanFilterTest {
+
+    private static final double METERS_PER_DEGREE = 111195;
+
+    private static Location createLocation(long time, double north, float accuracy) {
+        Location location = new Location("gps");
+        location.setTime(time);
+        location.setLatitude(49.5 + north / METERS_PER_DEGREE);
+        location.setLongitude(14.5);
+        location.setAccuracy(accuracy);
+        return location;
+    }
+
+    private static double north(Location location) {
+        return (location.getLatitude() - 49.5) * METERS_PER_DEGREE;
+    }
+
+    @Test
+    public void testOutlier() throws Exception {
+
+        KalmanFilter filter = new KalmanFilter(KalmanFilter.MAX_SPEED, false);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(PositionFilter.Result.PASS, filter.filter(createLocation(i * 1000, i * 20, 5), null));
+        }
+
+        assertEquals(PositionFilter.Result.DROP, filter.filter(createLocation(10000, 1200, 5), null));
+        assertEquals(PositionFilter.Result.PASS, filter.filter(createLocation(11000, 220, 5), null));
+        assertEquals(PositionFilter.Result.PASS, filter.filter(createLocation(12000, 1240, 1000), null));
+
+        for (int i = 0; i < KalmanFilter.MAX_REJECTED; i++) {
+            assertEquals(PositionFilter.Result.DROP, filter.filter(createLocation(13000 + i * 1000, 5000, 5), null));
+        }
+        assertEquals(PositionFilter.Result.PASS, filter.filter(createLocation(16000, 5000, 5), null));
+        assertEquals(PositionFilter.Result.PASS, filter.filter(createLocation(17000, 5020, 5), null));
+
+    }
+
+    @Test
+    public void testSmoothing() throws Exception {
+
+        KalmanFilter filter = new KalmanFilter(KalmanFilter.MAX_SPEED, true);
+        Random random = new Random(0);
+        double rawError = 0;
+        double smoothedError = 0;
+        for (int i = 0; i < 300; i++) {
+            double north = i * 20;
+            Location location = createLocation(i * 1000, north + random.nextGaussian() * 10, 10);
+            double raw = north(location);
+            rawError += Math.abs(raw - north);
+            filter.filter(location, null);
+            Location smoothed = filter.smooth(location);
+            smoothedError += Math.abs(north(smoothed) - north);
+            assertEquals(10, smoothed.getAccuracy(), 0);
+            assertEquals(raw, north(location), 0);
+        }
+
+        assertTrue(smoothedError < rawError * 0.7);
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.traccar.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkManagerTest {
+
+    private static final NetworkState CONNECTING = new NetworkState(
+            true, false, true, NetworkState.Transport.CELLULAR);
+    private static final NetworkState CELLULAR = new NetworkState(
+            true, true, true, NetworkState.Transport.CELLULAR);
+    private static final NetworkState WIFI = new NetworkState(
+            true, true, false, NetworkState.Transport.WIFI);
+
+    @Test
+    public void testUpdates() throws Exception {
+
+        final List<NetworkState> updates = new ArrayList<>();
+        FakeConnectivitySource source = new FakeConnectivitySource();
+        NetworkManager networkManager = new NetworkManager(source, new NetworkManager.NetworkHandler() {
+            @Override
+            public void onNetworkUpdate(NetworkState state) {
+                updates.add(state);
+            }
+        });
+
+        assertFalse(networkManager.isOnline());
+
+        networkManager.start();
+        source.setState(CONNECTING);
+        source.setState(new NetworkState(true, false, true, NetworkState.Transport.CELLULAR));
+        source.setState(CELLULAR);
+
+        assertEquals(2, updates.size());
+        assertEquals(CELLULAR, networkManager.getState());
+
+        networkManager.stop();
+        source.setState(NetworkState.OFFLINE);
+
+        assertEquals(2, updates.size());
+
+    }
+
+    @Test
+    public void testUploadPolicy() throws Exception {
+
+        UploadPolicy policy = new UploadPolicy(false, false);
+
+        assertTrue(policy.allowLive(CONNECTING));
+        assertTrue(policy.allowBacklog(CONNECTING));
+        assertTrue(policy.allowBacklog(CELLULAR));
+        assertFalse(policy.allowLive(NetworkState.OFFLINE));
+        assertFalse(policy.allowBacklog(NetworkState.OFFLINE));
+
+        policy = new UploadPolicy(false, true);
+
+        assertFalse(policy.allowBacklog(CONNECTING));
+        assertTrue(policy.allowBacklog(CELLULAR));
+
+        policy = new UploadPolicy(true, false);
+
+        assertTrue(policy.allowLive(CELLULAR));
+        assertFalse(policy.allowBacklog(CELLULAR));
+        assertTrue(policy.allowBacklog(WIFI));
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.traccar.client;
+
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PositionFilterTest {
+
+    private static Location createLocation(long time, float bearing, float accuracy) {
+        Location location = new Location("gps");
+        location.setTime(time);
+        location.setBearing(bearing);
+        location.setAccuracy(accuracy);
+        return location;
+    }
+
+    @Test
+    public void testHeadingChange() throws Exception {
+
+        assertEquals(2, HeadingFilter.headingChange(359, 1), 0.001);
+        assertEquals(2, HeadingFilter.headingChange(1, 359), 0.001);
+        assertEquals(180, HeadingFilter.headingChange(90, 270), 0.001);
+        assertEquals(30, HeadingFilter.headingChange(10, 40), 0.001);
+
+    }
+
+    @Test
+    public void testChain() throws Exception {
+
+        IntervalFilter intervalFilter = new IntervalFilter(60000);
+        HeadingFilter headingFilter = new HeadingFilter(30);
+        AccuracyFilter accuracyFilter = new AccuracyFilter(50);
+        PositionFilterChain chain = new PositionFilterChain()
+                .add(new DuplicateFilter())
+                .add(accuracyFilter)
+                .add(intervalFilter)
+                .add(headingFilter);
+
+        Location last = createLocation(0, 350, 10);
+        assertTrue(chain.accept(last, null));
+
+        assertFalse(chain.accept(last, last));
+        assertFalse(chain.accept(createLocation(1000, 5, 10), last));
+        assertTrue(chain.accept(createLocation(1000, 30, 10), last));
+        assertFalse(chain.accept(createLocation(60000, 30, 100), last));
+        assertTrue(chain.accept(createLocation(60000, 350, 10), last));
+
+        assertEquals(6, chain.getFilters().get(0).getSeen());
+        assertEquals(1, chain.getFilters().get(0).getDropped());
+        assertEquals(1, accuracyFilter.getDropped());
+        assertEquals(1, intervalFilter.getAccepted());
+        assertEquals(1, headingFilter.getAccepted());
+        assertEquals(1, chain.getUnmatched());
+
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.traccar.client;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.location.LocationManager;
+import android.preference.PreferenceManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class PositionProviderTest {
+
+    private static final PositionProvider.PositionListener LISTENER = new PositionProvider.PositionListener() {
+        @Override
+        public void onPositionUpdate(Position position) {
+        }
+
+        @Override
+        public void onPositionBatch(List<Position> positions) {
+        }
+
+        @Override
+        public void onPositionError(Throwable error) {
+        }
+    };
+
+    @Test
+    public void testRequest() throws Exception {
+
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application, LISTENER);
+        provider.setupChargingVariables(false);
+
+        assertEquals(provider.interval, provider.getRequestInterval());
+        assertEquals(0, provider.getRequestDistance(), 0);
+
+        provider.distance = 100;
+        assertEquals(PositionProvider.MINIMUM_INTERVAL, provider.getRequestInterval());
+        assertEquals(100, provider.getRequestDistance(), 0);
+
+        provider.angle = 30;
+        assertEquals(0, provider.getRequestDistance(), 0);
+
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application);
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application, LISTENER);
+        provider.setupChargingVariables(false);
+        TrackingConfig previous = provider.config;
+
+        preferences.edit()
+                .putString(MainFragment.KEY_DEVICE, "123456")
+                .putString(MainFragment.KEY_INTERVAL, "30")
+                .putString(MainFragment.KEY_DISTANCE, "50")
+                .commit();
+        TrackingConfig config = new TrackingConfig(RuntimeEnvironment.application, preferences);
+        assertFalse(config.isProviderChanged(previous));
+
+        provider.setConfig(config);
+        assertEquals("123456", provider.deviceId);
+        assertEquals(30000, provider.interval_battery);
+        assertEquals(50, provider.getRequestDistance(), 0);
+
+        preferences.edit().putBoolean(MainFragment.KEY_MOTION, true).commit();
+        config = new TrackingConfig(RuntimeEnvironment.application, preferences);
+        assertTrue(config.isProviderChanged(provider.config));
+
+        provider.setConfig(config);
+        assertTrue(provider.motionDetector != null);
+
+    }
+
+    @Test
+    public void testMotion() throws Exception {
+
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application, LISTENER);
+        FakeMotionDetector motionDetector = new FakeMotionDetector();
+        provider.motionDetector = motionDetector;
+        provider.distance = 100;
+        provider.startUpdates();
+
+        motionDetector.setMoving(false);
+        assertEquals(PositionProvider.STATIONARY_INTERVAL, provider.getRequestInterval());
+        assertEquals(0, provider.getRequestDistance(), 0);
+
+        motionDetector.setMoving(true);
+        assertEquals(PositionProvider.MINIMUM_INTERVAL, provider.getRequestInterval());
+        assertEquals(100, provider.getRequestDistance(), 0);
+
+        provider.stopUpdates();
+
+    }
+
+    @Test
+    public void testMotionStopped() throws Exception {
+
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application, LISTENER);
+        provider.motionDetector = new FakeMotionDetector();
+        provider.startUpdates();
+        provider.stopUpdates();
+
+        provider.onMotionChanged(true);
+
+        LocationManager locationManager =
+                (LocationManager) RuntimeEnvironment.application.getSystemService(Context.LOCATION_SERVICE);
+        assertTrue(shadowOf(locationManager).getRequestLocationUpdateListeners().isEmpty());
+
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application, LISTENER);
+        provider.setupChargingVariables(false);
+
+        Location location = new Location("gps");
+        location.setTime(1000);
+        provider.processLocation(location);
+        provider.processLocation(location);
+
+        assertEquals(2, provider.getDelivered());
+        assertEquals(1, provider.getAccepted());
+
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+
+        final List<Position> batch = new ArrayList<>();
+        PositionProvider provider = new AndroidPositionProvider(RuntimeEnvironment.application,
+                new PositionProvider.PositionListener() {
+                    @Override
+                    public void onPositionUpdate(Position position) {
+                    }
+
+                    @Override
+                    public void onPositionBatch(List<Position> positions) {
+                        batch.addAll(positions);
+                    }
+
+                    @Override
+                    public void onPositionError(Throwable error) {
+                    }
+                });
+        provider.setupChargingVariables(false);
+
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Location location = new Location("gps");
+            location.setTime(i * provider.interval);
+            locations.add(location);
+        }
+        locations.add(locations.get(2));
+        provider.processLocations(locations);
+
+        assertEquals(3, batch.size());
+        assertEquals(4, provider.getDelivered());
+
+    }
+
+}
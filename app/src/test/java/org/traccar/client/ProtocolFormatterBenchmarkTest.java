@@ -0,0 +1,86 @@
+package org.traccar.client;
+
+import android.location.Location;
+import android.net.Uri;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+
+/**
+ * Formats requests with the former Uri.Builder code and with the template, and reports the time
+ * and allocated bytes per request. Both depend on the JVM and the machine, so the benchmark is not
+ * part of the unit suite.
+ */
+@Ignore("benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+public class ProtocolFormatterBenchmarkTest {
+
+    private static final int COUNT = 10000;
+    private static final String URL = "http://localhost:5055";
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String formatLegacyRequest(Position position) {
+        return Uri.parse(URL).buildUpon()
+                .appendQueryParameter("id", position.getDeviceId())
+                .appendQueryParameter("timestamp", String.valueOf(position.getTime().getTime() / 1000))
+                .appendQueryParameter("lat", String.valueOf(position.getLatitude()))
+                .appendQueryParameter("lon", String.valueOf(position.getLongitude()))
+                .appendQueryParameter("speed", String.valueOf(position.getSpeed()))
+                .appendQueryParameter("bearing", String.valueOf(position.getCourse()))
+                .appendQueryParameter("altitude", String.valueOf(position.getAltitude()))
+                .appendQueryParameter("accuracy", String.valueOf(position.getAccuracy()))
+                .appendQueryParameter("batt", String.valueOf(position.getBattery()))
+                .build().toString();
+    }
+
+    @Test
+    public void benchmarkFormat() throws Exception {
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(1500000000000L));
+        position.setLatitude(49.123456789012345);
+        position.setLongitude(14.987654321098765);
+        position.setIgnition(-1);
+        position.setTemperature(Float.NaN);
+
+        ProtocolFormatter formatter = new ProtocolFormatter(URL);
+        for (int i = 0; i < COUNT; i++) {
+            formatLegacyRequest(position);
+            formatter.format(position);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            formatLegacyRequest(position);
+        }
+        long legacyTime = (System.nanoTime() - start) / COUNT;
+        long legacyBytes = (allocatedBytes() - bytes) / COUNT;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            formatter.format(position);
+        }
+        long templateTime = (System.nanoTime() - start) / COUNT;
+        long templateBytes = (allocatedBytes() - bytes) / COUNT;
+
+        System.out.println("Uri.Builder: " + legacyTime + " ns/op, " + legacyBytes + " bytes/op");
+        System.out.println("template: " + templateTime + " ns/op, " + templateBytes + " bytes/op");
+
+    }
+
+}
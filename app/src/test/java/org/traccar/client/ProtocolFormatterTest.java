@@ -2,13 +2,20 @@
 package org.traccar.client;
 
 import android.location.Location;
+import android.net.Uri;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.net.URLDecoder;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -44,4 +51,134 @@ public class ProtocolFormatterTest {
         String url = ProtocolFormatter.formatRequest("http://localhost:5055/path", position, "alert message");
         assertEquals("http://localhost:5055/path?id=123456789012345&timestamp=0&lat=0.0&lon=0.0&speed=0.0&bearing=0.0&altitude=0.0&accuracy=0.0&batt=0.0&alarm=alert%20message", url);
     }
+
+    @Test
+    public void testFormatBatch() throws Exception {
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+
+        List<Position> positions = new ArrayList<>();
+        positions.add(position);
+        positions.add(position);
+        positions.add(position);
+
+        String body = new ProtocolFormatter("http://localhost:5055").formatBatch(positions, 250);
+        assertEquals("id=123456789012345&timestamp=0&lat=0.0&lon=0.0&speed=0.0&bearing=0.0&altitude=0.0&accuracy=0.0&batt=0.0\n"
+                + "id=123456789012345&timestamp=0&lat=0.0&lon=0.0&speed=0.0&bearing=0.0&altitude=0.0&accuracy=0.0&batt=0.0", body);
+        assertEquals(2, positions.size());
+    }
+
+    /**
+     * Decodes a batch body the way a batch capable server does, every line as a query string.
+     */
+    private static List<Map<String, String>> decodeBatch(String body) throws Exception {
+        List<Map<String, String>> result = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            Map<String, String> parameters = new HashMap<>();
+            for (String parameter : line.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                parameters.put(URLDecoder.decode(pair[0], "UTF-8"), URLDecoder.decode(pair[1], "UTF-8"));
+            }
+            result.add(parameters);
+        }
+        return result;
+    }
+
+    @Test
+    public void testDecodeBatch() throws Exception {
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Position position = new Position("device id+" + i, new Location("gps"), 0);
+            position.setTime(new Date(i * 1000));
+            position.setLatitude(i);
+            positions.add(position);
+        }
+
+        List<Map<String, String>> decoded = decodeBatch(
+                new ProtocolFormatter("http://localhost:5055").formatBatch(new ArrayList<>(positions), 1000));
+
+        assertEquals(positions.size(), decoded.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(positions.get(i).getDeviceId(), decoded.get(i).get("id"));
+            assertEquals(String.valueOf(i), decoded.get(i).get("timestamp"));
+            assertEquals(positions.get(i).getLatitude(), Double.parseDouble(decoded.get(i).get("lat")), 0);
+        }
+    }
+
+    @Test
+    public void testFormatPrecision() throws Exception {
+
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(0));
+        position.setLatitude(49.123456789012345);
+        position.setLongitude(-0.0000004);
+
+        String url = new ProtocolFormatter("http://localhost:5055", 6).format(position);
+        assertEquals("http://localhost:5055?id=123456789012345&timestamp=0&lat=49.123457&lon=0&speed=0.0&bearing=0.0&altitude=0.0&accuracy=0.0&batt=0.0", url);
+
+        position.setLatitude(-1.05);
+        position.setLongitude(10.000001);
+
+        url = new ProtocolFormatter("http://localhost:5055", 6).format(position);
+        assertEquals("http://localhost:5055?id=123456789012345&timestamp=0&lat=-1.05&lon=10.000001&speed=0.0&bearing=0.0&altitude=0.0&accuracy=0.0&batt=0.0", url);
+    }
+
+    private static String formatLegacyRequest(String url, Position position, String alarm) {
+        Uri.Builder builder = Uri.parse(url).buildUpon()
+                .appendQueryParameter("id", position.getDeviceId())
+                .appendQueryParameter("timestamp", String.valueOf(position.getTime().getTime() / 1000))
+                .appendQueryParameter("lat", String.valueOf(position.getLatitude()))
+                .appendQueryParameter("lon", String.valueOf(position.getLongitude()))
+                .appendQueryParameter("speed", String.valueOf(position.getSpeed()))
+                .appendQueryParameter("bearing", String.valueOf(position.getCourse()))
+                .appendQueryParameter("altitude", String.valueOf(position.getAltitude()))
+                .appendQueryParameter("accuracy", String.valueOf(position.getAccuracy()))
+                .appendQueryParameter("batt", String.valueOf(position.getBattery()));
+        if (position.getIgnition() != -1) {
+            builder.appendQueryParameter("ignition", String.valueOf(position.getIgnition() == 1));
+        }
+        if (!Float.isNaN(position.getTemperature())) {
+            builder.appendQueryParameter("deviceTemp", String.valueOf(position.getTemperature()));
+        }
+        if (position.getMock()) {
+            builder.appendQueryParameter("mock", String.valueOf(position.getMock()));
+        }
+        if (alarm != null) {
+            builder.appendQueryParameter("alarm", alarm);
+        }
+        return builder.build().toString();
+    }
+
+    @Test
+    public void testLegacyCompatibility() throws Exception {
+
+        String[] urls = {
+                "http://localhost:5055", "https://demo.traccar.org:5055/path", "http://localhost/?", "http://localhost/path?key=value#fragment" };
+        String[] deviceIds = { "123456789012345", "device id+1&2", "za\u0159\u00edzen\u00ed", "\ud83d\ude97" };
+        String[] alarms = { null, "sos", "alert message" };
+
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            Position position = new Position();
+            position.setDeviceId(deviceIds[i % deviceIds.length]);
+            position.setTime(new Date(random.nextLong() & 0xFFFFFFFFFFFL));
+            position.setLatitude(random.nextDouble() * 180 - 90);
+            position.setLongitude(random.nextDouble() * 360 - 180);
+            position.setAltitude(random.nextDouble() * 1000);
+            position.setSpeed(random.nextInt(200));
+            position.setCourse(random.nextFloat() * 360);
+            position.setAccuracy(random.nextInt(3) == 0 ? 0 : random.nextDouble() * 50);
+            position.setBattery(random.nextInt(101));
+            position.setIgnition(random.nextInt(3) - 1);
+            position.setTemperature(random.nextBoolean() ? Float.NaN : random.nextFloat() * 40);
+            position.setMock(random.nextInt(10) == 0);
+
+            String url = urls[i % urls.length];
+            String alarm = alarms[i % alarms.length];
+            assertEquals(formatLegacyRequest(url, position, alarm), ProtocolFormatter.formatRequest(url, position, alarm));
+        }
+    }
+
 }
@@ -7,6 +7,8 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -20,4 +22,53 @@ public class RequestManagerTest {
 
     }
 
+    @Test
+    public void testWarmUpThrottle() throws Exception {
+
+        HttpTransport transport = new HttpTransport();
+        assertTrue(transport.isWarmUpDue("http://localhost:5055", 0));
+
+        transport.setWarm("http://localhost:5055", 1000);
+        assertFalse(transport.isWarmUpDue("http://localhost:5055", 1000 + HttpTransport.WARM_UP_INTERVAL - 1));
+        assertTrue(transport.isWarmUpDue("http://localhost:5055", 1000 + HttpTransport.WARM_UP_INTERVAL));
+        assertTrue(transport.isWarmUpDue("http://example.com:5055", 2000));
+
+        transport.resetWarmUp();
+        assertTrue(transport.isWarmUpDue("http://localhost:5055", 2000));
+
+    }
+
+    @Test
+    public void testClassify() throws Exception {
+
+        assertEquals(HttpTransport.Status.SERVER_ERROR, HttpTransport.classify(-1));
+        assertEquals(HttpTransport.Status.SERVER_ERROR, HttpTransport.classify(100));
+        assertEquals(HttpTransport.Status.SUCCESS, HttpTransport.classify(200));
+        assertEquals(HttpTransport.Status.SUCCESS, HttpTransport.classify(302));
+        assertEquals(HttpTransport.Status.CLIENT_ERROR, HttpTransport.classify(400));
+        assertEquals(HttpTransport.Status.SERVER_ERROR, HttpTransport.classify(429));
+        assertEquals(HttpTransport.Status.SERVER_ERROR, HttpTransport.classify(503));
+
+    }
+
+    @Test
+    public void testPermanent() throws Exception {
+
+        assertTrue(new HttpTransport.Response(HttpTransport.Status.CLIENT_ERROR, 400, 0, 0, 0).isPermanent(1));
+
+        HttpTransport.Response response = new HttpTransport.Response(HttpTransport.Status.SERVER_ERROR, 500, 0, 0, 0);
+        assertFalse(response.isPermanent(HttpTransport.MAX_ATTEMPTS - 1));
+        assertTrue(response.isPermanent(HttpTransport.MAX_ATTEMPTS));
+
+        response = new HttpTransport.Response(HttpTransport.Status.SERVER_ERROR, 503, 0, 0, 0);
+        assertFalse(response.isPermanent(HttpTransport.MAX_ATTEMPTS));
+
+        response = new HttpTransport.Response(HttpTransport.Status.SERVER_ERROR, -1, 0, 0, 0);
+        assertFalse(response.isPermanent(HttpTransport.MAX_ATTEMPTS));
+
+        response = new HttpTransport.Response(HttpTransport.Status.NETWORK_ERROR, 0, 0, 0, 0);
+        assertFalse(response.isPermanent(HttpTransport.MAX_ATTEMPTS));
+
+    }
+
 }
@@ -0,0 +1,49 @@
+package org.traccar.client;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SendWindowTest {
+
+    private static List<Position> createChunk(long id) {
+        Position position = new Position();
+        position.setId(id);
+        return Collections.singletonList(position);
+    }
+
+    @Test
+    public void testOrderedRelease() throws Exception {
+
+        SendWindow window = new SendWindow(3);
+
+        List<Position> first = createChunk(1);
+        List<Position> second = createChunk(2);
+        List<Position> third = createChunk(3);
+        window.add(first);
+        window.add(second);
+        window.add(third);
+
+        assertTrue(window.isFull());
+        assertEquals(3, window.getLastId());
+
+        assertTrue(window.acknowledge(third).isEmpty());
+        assertTrue(window.acknowledge(second).isEmpty());
+
+        List<Position> released = window.acknowledge(first);
+        assertEquals(3, released.size());
+        assertEquals(1, released.get(0).getId());
+        assertEquals(3, released.get(2).getId());
+
+        assertTrue(window.isEmpty());
+        assertFalse(window.isFull());
+        assertEquals(3, window.getAvailable());
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.traccar.client;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrackingConfigTest {
+
+    @Test
+    public void testServerBatch() throws Exception {
+
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application);
+        preferences.edit().putString(MainFragment.KEY_BATCH, "10").commit();
+
+        TrackingConfig previous = new TrackingConfig(RuntimeEnvironment.application, preferences);
+        assertEquals(1, previous.getBatch());
+
+        preferences.edit().putBoolean(MainFragment.KEY_SERVER_BATCH, true).commit();
+
+        TrackingConfig config = new TrackingConfig(RuntimeEnvironment.application, preferences);
+        assertEquals(10, config.getBatch());
+        assertTrue(config.isLimitChanged(previous));
+
+    }
+
+}
@@ -0,0 +1,189 @@
+package org.traccar.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrajectorySimplifierTest {
+
+    private static final double MAX_ERROR = 10;
+    private static final long MAX_HOLD = 300000;
+    private static final double METERS_PER_DEGREE = 111195;
+
+    private static Position createPosition(long time, double latitude, double longitude, double speed) {
+        Position position = new Position();
+        position.setTime(new Date(time));
+        position.setLatitude(latitude);
+        position.setLongitude(longitude);
+        position.setSpeed(speed);
+        return position;
+    }
+
+    /**
+     * Drive at 1 s interval with straight legs, gentle curves, GPS noise and stops.
+     */
+    private static List<Position> createTrack(Random random, int count) {
+        List<Position> positions = new ArrayList<>();
+        long time = 1500000000000L;
+        double latitude = 49.5;
+        double longitude = 14.5;
+        double course = random.nextDouble() * 360;
+        double turn = 0;
+        int stop = 0;
+        for (int i = 0; i < count; i++) {
+            time += 1000;
+            if (stop > 0) {
+                stop -= 1;
+                positions.add(createPosition(time, latitude, longitude, 0));
+                continue;
+            }
+            if (random.nextInt(600) == 0) {
+                stop = 60 + random.nextInt(120);
+            }
+            if (random.nextInt(120) == 0) {
+                turn = random.nextInt(3) == 0 ? random.nextGaussian() * 2 : 0;
+            }
+            course += turn;
+            double speed = 30; // m/s
+            latitude += speed * Math.cos(Math.toRadians(course)) / METERS_PER_DEGREE;
+            longitude += speed * Math.sin(Math.toRadians(course))
+                    / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+            double noise = random.nextGaussian() * 2 / METERS_PER_DEGREE;
+            positions.add(createPosition(time, latitude + noise, longitude, speed * 1.943844));
+        }
+        return positions;
+    }
+
+    private static List<Position> simplify(TrajectorySimplifier simplifier, List<Position> positions) {
+        List<Position> result = new ArrayList<>();
+        for (Position position : positions) {
+            result.addAll(simplifier.add(position));
+        }
+        result.addAll(simplifier.flush());
+        return result;
+    }
+
+    /**
+     * Largest distance from an original position to the reported segment covering its time.
+     */
+    private static double maxError(List<Position> original, List<Position> simplified) {
+        double maxError = 0;
+        int segment = 0;
+        for (Position position : original) {
+            while (segment < simplified.size() - 2
+                    && simplified.get(segment + 1).getTime().getTime() <= position.getTime().getTime()) {
+                segment += 1;
+            }
+            maxError = Math.max(maxError, TrajectorySimplifier.segmentDistance(
+                    position, simplified.get(segment), simplified.get(segment + 1)));
+        }
+        return maxError;
+    }
+
+    @Test
+    public void testSegmentDistance() throws Exception {
+
+        Position start = createPosition(0, 0, 0, 10);
+        Position end = createPosition(0, 0, 1, 10);
+
+        assertEquals(METERS_PER_DEGREE * 0.1, TrajectorySimplifier.segmentDistance(
+                createPosition(0, 0.1, 0.5, 10), start, end), 1);
+        assertEquals(METERS_PER_DEGREE, TrajectorySimplifier.segmentDistance(
+                createPosition(0, 0, 2, 10), start, end), 1);
+        assertEquals(METERS_PER_DEGREE, TrajectorySimplifier.segmentDistance(
+                createPosition(0, 0, -179, 10), createPosition(0, 0, 179, 10), createPosition(0, 0, 180, 10)), 1);
+
+    }
+
+    @Test
+    public void testCorner() throws Exception {
+
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(MAX_ERROR, MAX_HOLD);
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            positions.add(createPosition(i * 1000, 0, i * 0.001, 10));
+        }
+        for (int i = 1; i <= 10; i++) {
+            positions.add(createPosition((10 + i) * 1000, i * 0.001, 0.01, 10));
+        }
+
+        List<Position> result = simplify(simplifier, positions);
+
+        assertEquals(3, result.size());
+        assertEquals(positions.get(0), result.get(0));
+        assertEquals(positions.get(10), result.get(1));
+        assertEquals(positions.get(20), result.get(2));
+
+    }
+
+    @Test
+    public void testStop() throws Exception {
+
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(MAX_ERROR, MAX_HOLD);
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            boolean stopped = i >= 10 && i < 20;
+            positions.add(createPosition(i * 1000, 0, Math.min(Math.max(i, 10), 20) * 0.0001, stopped ? 0 : 10));
+        }
+
+        List<Position> result = simplify(simplifier, positions);
+
+        assertTrue(result.contains(positions.get(10)));
+        assertTrue(result.contains(positions.get(19)));
+        assertTrue(result.size() < positions.size() / 3);
+
+    }
+
+    @Test
+    public void testMaxHold() throws Exception {
+
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(MAX_ERROR, 10000);
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i <= 60; i++) {
+            positions.add(createPosition(i * 1000, 0, i * 0.001, 10));
+        }
+
+        List<Position> result = new ArrayList<>();
+        for (Position position : positions) {
+            result.addAll(simplifier.add(position));
+            Position last = result.get(result.size() - 1);
+            assertTrue(position.getTime().getTime() - last.getTime().getTime() < 10000);
+        }
+
+        assertEquals(7, result.size());
+        assertEquals(positions.get(10), result.get(1));
+        assertEquals(positions.get(60), result.get(6));
+        assertTrue(simplifier.flush().isEmpty());
+
+    }
+
+    @Test
+    public void testMaxError() throws Exception {
+
+        for (int seed = 0; seed < 5; seed++) {
+            List<Position> positions = createTrack(new Random(seed), 3600);
+            List<Position> result = simplify(new TrajectorySimplifier(MAX_ERROR, MAX_HOLD), positions);
+
+            assertTrue(maxError(positions, result) <= MAX_ERROR + 0.001);
+        }
+
+    }
+
+    @Test
+    public void testRatio() throws Exception {
+
+        // an hour of driving with curves and stops, loose bound on the share of positions kept
+        List<Position> positions = createTrack(new Random(0), 3600);
+        List<Position> result = simplify(new TrajectorySimplifier(MAX_ERROR, MAX_HOLD), positions);
+
+        assertTrue(result.size() * 5 < positions.size());
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.traccar.client;
+
+import android.database.SQLException;
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class WriteBufferTest {
+
+    private static Position createPosition(long time) {
+        Position position = new Position("123456789012345", new Location("gps"), 0);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    private static class Results implements WriteBuffer.WriteHandler {
+
+        private final List<Boolean> results = new ArrayList<>();
+
+        @Override
+        public void onWrite(boolean success) {
+            results.add(success);
+        }
+
+    }
+
+    private static int count(DatabaseHelper databaseHelper) {
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.runUiThreadTasks();
+        return databaseHelper.selectPositions(1000).size();
+    }
+
+    @Test
+    public void testFlushSize() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        Results results = new Results();
+        WriteBuffer writeBuffer = new WriteBuffer(databaseHelper, results);
+
+        for (int i = 0; i < WriteBuffer.FLUSH_SIZE - 1; i++) {
+            writeBuffer.write(createPosition(i * 1000));
+        }
+        assertEquals(0, count(databaseHelper));
+
+        writeBuffer.write(createPosition(WriteBuffer.FLUSH_SIZE * 1000));
+        assertEquals(WriteBuffer.FLUSH_SIZE, count(databaseHelper));
+        assertEquals(1, results.results.size());
+        assertTrue(results.results.get(0));
+
+    }
+
+    @Test
+    public void testFlushDelay() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        WriteBuffer writeBuffer = new WriteBuffer(databaseHelper, new Results());
+
+        writeBuffer.write(createPosition(0));
+        writeBuffer.write(createPosition(1000));
+        ShadowLooper.idleMainLooper(WriteBuffer.FLUSH_DELAY - 1000, TimeUnit.MILLISECONDS);
+        assertEquals(0, count(databaseHelper));
+
+        ShadowLooper.idleMainLooper(1000, TimeUnit.MILLISECONDS);
+        assertEquals(2, count(databaseHelper));
+
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        WriteBuffer writeBuffer = new WriteBuffer(databaseHelper, new Results());
+
+        writeBuffer.write(createPosition(0));
+        writeBuffer.write(createPosition(1000));
+        writeBuffer.flush();
+        assertEquals(2, count(databaseHelper));
+
+        ShadowLooper.idleMainLooper(WriteBuffer.FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        assertEquals(2, count(databaseHelper));
+
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+
+        final int[] failures = new int[] { 1 };
+        DatabaseHelper databaseHelper = new DatabaseHelper(RuntimeEnvironment.application) {
+            @Override
+            public void insertPositions(List<Position> positions) {
+                if (failures[0] > 0) {
+                    failures[0] -= 1;
+                    throw new SQLException();
+                }
+                super.insertPositions(positions);
+            }
+        };
+        Results results = new Results();
+        WriteBuffer writeBuffer = new WriteBuffer(databaseHelper, results);
+
+        writeBuffer.write(createPosition(0));
+        writeBuffer.flush();
+        assertEquals(0, count(databaseHelper));
+        assertFalse(results.results.get(0));
+
+        writeBuffer.write(createPosition(1000));
+        ShadowLooper.idleMainLooper(WriteBuffer.FLUSH_DELAY, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, count(databaseHelper));
+        assertEquals(0, databaseHelper.selectPositions(1).get(0).getTime().getTime());
+        assertTrue(results.results.get(1));
+
+    }
+
+}